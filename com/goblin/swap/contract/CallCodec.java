@@ -0,0 +1,90 @@
+package com.goblin.swap.contract;
+
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigInteger;
+
+/**
+ * Typed wrappers for the cross-contract calls an exchange makes. Every method takes addresses as
+ * {@link Address} and amounts and deadlines as {@link BigInteger}, owns its argument layout and decodes
+ * the return value. The token, LP token and factory targets are fixed at construction, and so are the
+ * argument rows that only carry the exchange's own address: they are shared by every call and never
+ * written, so {@link #selfBalance()} allocates no arguments and {@link #transferFrom} one row fewer.
+ */
+public final class CallCodec {
+    private final Address token;
+    private final Address lpToken;
+    private final Address factory;
+    private final String[] selfArg;
+    private final String[][] selfArgs;
+
+    public CallCodec(Address token, Address lpToken, Address factory, Address self) {
+        this.token = token;
+        this.lpToken = lpToken;
+        this.factory = factory;
+        this.selfArg = new String[]{self.toString()};
+        this.selfArgs = new String[][]{selfArg};
+    }
+
+    /**
+     * The exchange's own token balance.
+     */
+    public BigInteger selfBalance() {
+        return new BigInteger(token.callWithReturnValue("balanceOf", null, selfArgs, null));
+    }
+
+    public BigInteger balanceOf(Address owner) {
+        return new BigInteger(token.callWithReturnValue("balanceOf", null, args(owner.toString()), null));
+    }
+
+    public void transfer(Address to, BigInteger amount) {
+        token.call("transfer", null, args(to.toString(), amount.toString()), null);
+    }
+
+    /**
+     * Pulls {@code amount} tokens from {@code from} into this exchange.
+     */
+    public void transferFrom(Address from, BigInteger amount) {
+        token.call("transferFrom", null, new String[][]{{from.toString()}, selfArg, {amount.toString()}}, null);
+    }
+
+    public String getExchange(Address token_addr) {
+        return factory.callWithReturnValue("getExchange", null, args(token_addr.toString()), null);
+    }
+
+    public void addLiquidity(Address provider, BigInteger liquidity, BigInteger nuls_amount, BigInteger token_amount) {
+        lpToken.call("addLiquidity", null, args(provider.toString(), liquidity.toString(), nuls_amount.toString(), token_amount.toString()), null);
+    }
+
+    public void removeLiquidity(Address provider, BigInteger liquidity, BigInteger nuls_amount, BigInteger token_amount) {
+        lpToken.call("removeLiquidity", null, args(provider.toString(), liquidity.toString(), nuls_amount.toString(), token_amount.toString()), null);
+    }
+
+    public BigInteger getNulsToTokenOutputPrice(Address exchange, BigInteger tokens_bought) {
+        return new BigInteger(exchange.callWithReturnValue("getNulsToTokenOutputPrice", null, args(tokens_bought.toString()), null));
+    }
+
+    public BigInteger nulsToTokenTransferInput(Address exchange, BigInteger min_tokens, BigInteger deadline, Address recipient, BigInteger value) {
+        return new BigInteger(exchange.callWithReturnValue("nulsToTokenTransferInput", null, args(min_tokens.toString(), deadline.toString(), recipient.toString()), value));
+    }
+
+    public BigInteger nulsToTokenTransferOutput(Address exchange, BigInteger tokens_bought, BigInteger deadline, Address recipient, BigInteger value) {
+        return new BigInteger(exchange.callWithReturnValue("nulsToTokenTransferOutput", null, args(tokens_bought.toString(), deadline.toString(), recipient.toString()), value));
+    }
+
+    static String[][] args(String a) {
+        return new String[][]{{a}};
+    }
+
+    static String[][] args(String a, String b) {
+        return new String[][]{{a}, {b}};
+    }
+
+    static String[][] args(String a, String b, String c) {
+        return new String[][]{{a}, {b}, {c}};
+    }
+
+    static String[][] args(String a, String b, String c, String d) {
+        return new String[][]{{a}, {b}, {c}, {d}};
+    }
+}
@@ -5,16 +5,40 @@ import io.nuls.contract.sdk.annotation.JSONSerializable;
 import io.nuls.contract.sdk.annotation.Payable;
 import io.nuls.contract.sdk.annotation.Required;
 import io.nuls.contract.sdk.annotation.View;
-import org.rocksdb.ReadTier;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import static io.nuls.contract.sdk.Utils.emit;
 import static io.nuls.contract.sdk.Utils.require;
 
 public class GoblinSwap implements Contract {
+    private static final int NULS_TO_TOKEN = 0;
+    private static final int TOKEN_TO_NULS = 1;
+    private static final int ADD_LIQUIDITY = 2;
+    private static final int REMOVE_LIQUIDITY = 3;
+    private static final int BATCH_SWAP = 4;
+    private static final int SYNC = 5;
+    private static final int AUCTION = 6;
+    private static final int ZAP_IN = 7;
+    private static final int ZAP_OUT = 8;
+    private static final int EVENT_MODE_FULL = 0;
+    private static final int EVENT_MODE_COMPACT = 1;
+    private static final int MAX_QUOTE_STEPS = 100;
+    private static final int OBSERVATION_CAPACITY = 32;
+    private static final int MAX_AUCTION_ORDERS = 50;
+    private static final int MAX_SYNC_PROVIDERS = 50;
+    // cumulative prices are sums of price * 2^112 * seconds elapsed
+    private static final int PRICE_SHIFT = 112;
+    // fees per LP unit are scaled by 2^112
+    private static final int FEE_SHIFT = 112;
+    private static final BigInteger FEE_NUMERATOR = BigInteger.valueOf(997);
+    private static final BigInteger FEE_DENOMINATOR = BigInteger.valueOf(1000);
+
     private String name;
     private String symbol;
     private int decimals;
@@ -23,6 +47,53 @@ public class GoblinSwap implements Contract {
     private BigInteger _totalSupply = BigInteger.ZERO;
     private Map<Address, BigInteger> _balances = new HashMap<Address, BigInteger>();
     private Address lpToken;
+    private CallCodec calls;
+    private Map<Address, BigInteger> _lockedLp = new HashMap<Address, BigInteger>();
+    private Map<Address, BigInteger> _pendingLp = new HashMap<Address, BigInteger>();
+    private Map<Address, BigInteger> _pendingLpNuls = new HashMap<Address, BigInteger>();
+    private Map<Address, BigInteger> _pendingLpTokens = new HashMap<Address, BigInteger>();
+    private BigInteger _nulsReserve = BigInteger.ZERO;
+    private BigInteger _tokenReserve = BigInteger.ZERO;
+    private long _reserveVersion;
+    private long _reserveBlock;
+    private Map<Address, Address> exchanges = new HashMap<Address, Address>();
+    private long _nulsToTokenCount;
+    private long _tokenToNulsCount;
+    private BigInteger _nulsInVolume = BigInteger.ZERO;
+    private BigInteger _tokenOutVolume = BigInteger.ZERO;
+    private BigInteger _tokenInVolume = BigInteger.ZERO;
+    private BigInteger _nulsOutVolume = BigInteger.ZERO;
+    private long _addLiquidityCount;
+    private long _removeLiquidityCount;
+    private Address owner;
+    private int _eventMode = EVENT_MODE_FULL;
+    private BigInteger _nulsPriceCumulative = BigInteger.ZERO;
+    private BigInteger _tokenPriceCumulative = BigInteger.ZERO;
+    private long _priceTimestamp;
+    private long[] _observationTimestamps = new long[OBSERVATION_CAPACITY];
+    private BigInteger[] _observationNulsCumulatives = new BigInteger[OBSERVATION_CAPACITY];
+    private BigInteger[] _observationTokenCumulatives = new BigInteger[OBSERVATION_CAPACITY];
+    private int _observationIndex;
+    private int _observationCount;
+    private boolean _auctionMode;
+    private long _auctionBlock;
+    private List<Integer> _orderDirections = new ArrayList<Integer>();
+    private List<BigInteger> _orderAmounts = new ArrayList<BigInteger>();
+    private List<BigInteger> _orderMinOuts = new ArrayList<BigInteger>();
+    private List<Address> _orderBuyers = new ArrayList<Address>();
+    private List<Address> _orderRecipients = new ArrayList<Address>();
+    private BigInteger _queuedNuls = BigInteger.ZERO;
+    private BigInteger _queuedTokens = BigInteger.ZERO;
+    private Map<Address, BigInteger> _claimableNuls = new HashMap<Address, BigInteger>();
+    private Map<Address, BigInteger> _claimableTokens = new HashMap<Address, BigInteger>();
+    private BigInteger _unclaimedNuls = BigInteger.ZERO;
+    private BigInteger _unclaimedTokens = BigInteger.ZERO;
+    private BigInteger _nulsFeesPerLp = BigInteger.ZERO;
+    private BigInteger _tokenFeesPerLp = BigInteger.ZERO;
+    private Map<Address, BigInteger> _nulsFeeCheckpoints = new HashMap<Address, BigInteger>();
+    private Map<Address, BigInteger> _tokenFeeCheckpoints = new HashMap<Address, BigInteger>();
+    private Map<Address, BigInteger> _nulsFeesAccrued = new HashMap<Address, BigInteger>();
+    private Map<Address, BigInteger> _tokenFeesAccrued = new HashMap<Address, BigInteger>();
 
     public GoblinSwap(String name, String symbol, int decimals, Address token, Address factory, Address lpToken) {
         this.name = name;
@@ -31,23 +102,196 @@ public class GoblinSwap implements Contract {
         this.token = token;
         this.factory = factory;
         this.lpToken = lpToken;
+        this.owner = Msg.sender();
+        this.calls = new CallCodec(token, lpToken, factory, Msg.address());
+    }
+
+    @View
+    public int getEventMode() {
+        return _eventMode;
+    }
+
+    public void setEventMode(int mode) {
+        require(Msg.sender().equals(owner), "only owner");
+        require(mode == EVENT_MODE_FULL || mode == EVENT_MODE_COMPACT, "illegal event mode");
+        _eventMode = mode;
+    }
+
+    private void emitNulsToToken(Address buyer, BigInteger nuls_sold, BigInteger tokens_bought) {
+        if (_eventMode == EVENT_MODE_COMPACT) {
+            emit(new PoolUpdate(buyer, NULS_TO_TOKEN, nuls_sold, BigInteger.ZERO, BigInteger.ZERO, tokens_bought, _nulsReserve, _tokenReserve, BigInteger.ZERO));
+        } else {
+            emit(new TokenPurchase(buyer, nuls_sold, tokens_bought));
+            emit(new Snapshot(buyer, _nulsReserve, _tokenReserve));
+        }
+    }
+
+    private void emitTokenToNuls(Address buyer, BigInteger tokens_sold, BigInteger nuls_bought) {
+        if (_eventMode == EVENT_MODE_COMPACT) {
+            emit(new PoolUpdate(buyer, TOKEN_TO_NULS, BigInteger.ZERO, nuls_bought, tokens_sold, BigInteger.ZERO, _nulsReserve, _tokenReserve, BigInteger.ZERO));
+        } else {
+            emit(new NulsPurchase(buyer, tokens_sold, nuls_bought));
+            emit(new Snapshot(buyer, _nulsReserve, _tokenReserve));
+        }
+    }
+
+    private void emitAddLiquidity(Address provider, int action, BigInteger nuls_amount, BigInteger token_amount, BigInteger liquidity) {
+        if (_eventMode == EVENT_MODE_COMPACT) {
+            emit(new PoolUpdate(provider, action, nuls_amount, BigInteger.ZERO, token_amount, BigInteger.ZERO, _nulsReserve, _tokenReserve, liquidity));
+        } else {
+            emit(new AddLiquidity(provider, nuls_amount, token_amount));
+            emit(new Snapshot(provider, _nulsReserve, _tokenReserve));
+            emit(new TransferEvent(null, provider, liquidity));
+        }
+    }
+
+    private void emitRemoveLiquidity(Address provider, int action, BigInteger nuls_amount, BigInteger token_amount, BigInteger liquidity) {
+        if (_eventMode == EVENT_MODE_COMPACT) {
+            emit(new PoolUpdate(provider, action, BigInteger.ZERO, nuls_amount, BigInteger.ZERO, token_amount, _nulsReserve, _tokenReserve, liquidity.negate()));
+        } else {
+            emit(new RemoveLiquidity(provider, nuls_amount, token_amount));
+            emit(new Snapshot(provider, _nulsReserve, _tokenReserve));
+            emit(new TransferEvent(provider, null, liquidity));
+        }
     }
 
 
     @View
     public BigInteger getTokenBalance(Address address) {
-        String[][] args = new String[][]{new String[]{address.toString()}};
-        BigInteger amount = new BigInteger(token.callWithReturnValue("balanceOf", null, args, null));
-        return amount;
+        return calls.balanceOf(address);
+    }
+
+    private void updateReserves(BigInteger nuls_reserve, BigInteger token_reserve) {
+        long now = Block.timestamp();
+        if (now > _priceTimestamp) {
+            if (_priceTimestamp > 0) {
+                long elapsed = now - _priceTimestamp;
+                _nulsPriceCumulative = accumulatePrice(_nulsPriceCumulative, _tokenReserve, _nulsReserve, elapsed);
+                _tokenPriceCumulative = accumulatePrice(_tokenPriceCumulative, _nulsReserve, _tokenReserve, elapsed);
+            }
+            _priceTimestamp = now;
+            _observationTimestamps[_observationIndex] = now;
+            _observationNulsCumulatives[_observationIndex] = _nulsPriceCumulative;
+            _observationTokenCumulatives[_observationIndex] = _tokenPriceCumulative;
+            _observationIndex = (_observationIndex + 1) % OBSERVATION_CAPACITY;
+            if (_observationCount < OBSERVATION_CAPACITY) {
+                _observationCount++;
+            }
+        }
+        if (nuls_reserve.compareTo(_nulsReserve) != 0 || token_reserve.compareTo(_tokenReserve) != 0) {
+            _reserveVersion++;
+            _reserveBlock = Block.number();
+        }
+        _nulsReserve = nuls_reserve;
+        _tokenReserve = token_reserve;
+    }
+
+    private BigInteger accumulatePrice(BigInteger cumulative, BigInteger numerator, BigInteger denominator, long elapsed) {
+        if (numerator.compareTo(BigInteger.ZERO) <= 0 || denominator.compareTo(BigInteger.ZERO) <= 0) {
+            return cumulative;
+        }
+        return cumulative.add(numerator.shiftLeft(PRICE_SHIFT).divide(denominator).multiply(BigInteger.valueOf(elapsed)));
+    }
+
+    private void recordNulsToToken(BigInteger nuls_in, BigInteger tokens_out) {
+        _nulsToTokenCount++;
+        _nulsInVolume = _nulsInVolume.add(nuls_in);
+        _tokenOutVolume = _tokenOutVolume.add(tokens_out);
+    }
+
+    private void recordTokenToNuls(BigInteger tokens_in, BigInteger nuls_out) {
+        _tokenToNulsCount++;
+        _tokenInVolume = _tokenInVolume.add(tokens_in);
+        _nulsOutVolume = _nulsOutVolume.add(nuls_out);
+    }
+
+    @View
+    @JSONSerializable
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<String, Object>();
+        stats.put("nulsToTokenCount", _nulsToTokenCount);
+        stats.put("tokenToNulsCount", _tokenToNulsCount);
+        stats.put("nulsInVolume", _nulsInVolume);
+        stats.put("tokenOutVolume", _tokenOutVolume);
+        stats.put("tokenInVolume", _tokenInVolume);
+        stats.put("nulsOutVolume", _nulsOutVolume);
+        stats.put("addLiquidityCount", _addLiquidityCount);
+        stats.put("removeLiquidityCount", _removeLiquidityCount);
+        return stats;
+    }
+
+    /**
+     * Cumulative prices carried forward to the current block with the current reserves. nulsPriceCumulative
+     * is in tokens per NULS, tokenPriceCumulative in NULS per token; the difference between two reads
+     * divided by the seconds between them, shifted right by 112, is the time-weighted price.
+     */
+    @View
+    @JSONSerializable
+    public Map<String, Object> getPriceCumulatives() {
+        long now = Block.timestamp();
+        BigInteger nuls_price_cumulative = _nulsPriceCumulative;
+        BigInteger token_price_cumulative = _tokenPriceCumulative;
+        if (_priceTimestamp > 0 && now > _priceTimestamp) {
+            nuls_price_cumulative = accumulatePrice(nuls_price_cumulative, _tokenReserve, _nulsReserve, now - _priceTimestamp);
+            token_price_cumulative = accumulatePrice(token_price_cumulative, _nulsReserve, _tokenReserve, now - _priceTimestamp);
+        }
+        Map<String, Object> cumulatives = new HashMap<String, Object>();
+        cumulatives.put("timestamp", now);
+        cumulatives.put("nulsPriceCumulative", nuls_price_cumulative);
+        cumulatives.put("tokenPriceCumulative", token_price_cumulative);
+        return cumulatives;
+    }
+
+    /**
+     * Up to the last 32 observations, oldest first, one per block timestamp at which the pool was touched
+     * (a swap, a liquidity change or a sync), whether or not the reserves changed.
+     */
+    @View
+    @JSONSerializable
+    public List<Map<String, Object>> getObservations() {
+        List<Map<String, Object>> observations = new ArrayList<Map<String, Object>>();
+        int start = (_observationIndex - _observationCount + OBSERVATION_CAPACITY) % OBSERVATION_CAPACITY;
+        for (int i = 0; i < _observationCount; i++) {
+            int index = (start + i) % OBSERVATION_CAPACITY;
+            Map<String, Object> observation = new HashMap<String, Object>();
+            observation.put("timestamp", _observationTimestamps[index]);
+            observation.put("nulsPriceCumulative", _observationNulsCumulatives[index]);
+            observation.put("tokenPriceCumulative", _observationTokenCumulatives[index]);
+            observations.add(observation);
+        }
+        return observations;
+    }
+
+    public void sync() {
+        settleAuctionIfDue();
+        updateReserves(Msg.address().balance().subtract(_queuedNuls).subtract(_unclaimedNuls),
+                calls.selfBalance().subtract(_queuedTokens).subtract(_unclaimedTokens));
+        if (_eventMode == EVENT_MODE_COMPACT) {
+            emit(new PoolUpdate(Msg.sender(), SYNC, BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO, _nulsReserve, _tokenReserve, BigInteger.ZERO));
+        } else {
+            emit(new Snapshot(Msg.sender(), _nulsReserve, _tokenReserve));
+        }
+    }
+
+    public void skim(Address to) {
+        require(to != null && !to.equals(Msg.address()), "illegal recipient");
+        BigInteger nuls_excess = Msg.address().balance().subtract(_nulsReserve).subtract(_queuedNuls).subtract(_unclaimedNuls);
+        BigInteger token_excess = calls.selfBalance().subtract(_tokenReserve).subtract(_queuedTokens).subtract(_unclaimedTokens);
+        if (nuls_excess.compareTo(BigInteger.ZERO) > 0) {
+            to.transfer(nuls_excess);
+        }
+        if (token_excess.compareTo(BigInteger.ZERO) > 0) {
+            calls.transfer(to, token_excess);
+        }
     }
 
 
     @View
     public BigInteger getInputPrice(BigInteger input_amount, BigInteger input_reserve, BigInteger output_reserve) {
         require(input_reserve.compareTo(BigInteger.ZERO) > 0 && output_reserve.compareTo(BigInteger.ZERO) > 0, "INVALID_VALUE");
-        BigInteger input_amount_with_fee = input_amount.multiply(BigInteger.valueOf(997));
+        BigInteger input_amount_with_fee = input_amount.multiply(FEE_NUMERATOR);
         BigInteger numerator = input_amount_with_fee.multiply(output_reserve);
-        BigInteger denominator = input_reserve.multiply(BigInteger.valueOf(1000)).add(input_amount_with_fee);
+        BigInteger denominator = input_reserve.multiply(FEE_DENOMINATOR).add(input_amount_with_fee);
         return numerator.divide(denominator);
     }
 
@@ -55,22 +299,27 @@ public class GoblinSwap implements Contract {
     @View
     public BigInteger getOutputPrice(BigInteger output_amount, BigInteger input_reserve, BigInteger output_reserve) {
         require(input_reserve.compareTo(BigInteger.ZERO) > 0 && output_reserve.compareTo(BigInteger.ZERO) > 0);
-        BigInteger numerator = input_reserve.multiply(output_amount).multiply(BigInteger.valueOf(1000));
-        BigInteger denominator = (output_reserve.subtract(output_amount)).multiply(BigInteger.valueOf(997));
+        BigInteger numerator = input_reserve.multiply(output_amount).multiply(FEE_DENOMINATOR);
+        BigInteger denominator = (output_reserve.subtract(output_amount)).multiply(FEE_NUMERATOR);
         return (numerator.divide(denominator)).add(BigInteger.ONE);
     }
 
 
     private BigInteger nulsToTokenInput(BigInteger nuls_sold, BigInteger min_tokens, BigInteger deadline, Address buyer, Address recipient) {
         require(deadline.compareTo(BigInteger.valueOf(Block.timestamp())) >= 0 && nuls_sold.compareTo(BigInteger.ZERO) > 0 && min_tokens.compareTo(BigInteger.ZERO) > 0);
-        BigInteger token_reserve = getTokenBalance(Msg.address());
-        BigInteger tokens_bought = getInputPrice(nuls_sold, Msg.address().balance().subtract(nuls_sold), token_reserve);
+        if (_auctionMode) {
+            return queueOrder(NULS_TO_TOKEN, nuls_sold, min_tokens, buyer, recipient);
+        }
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
+        BigInteger tokens_bought = getInputPrice(nuls_sold, nuls_reserve, token_reserve);
         require(tokens_bought.compareTo(min_tokens) >= 0);
-        String[][] args1 = new String[][]{new String[]{recipient.toString()}, new String[]{tokens_bought.toString()}};
-        token.call("transfer", null, args1, null);
+        updateReserves(nuls_reserve.add(nuls_sold), token_reserve.subtract(tokens_bought));
+        recordNulsToToken(nuls_sold, tokens_bought);
+        accrueFees(nuls_sold, BigInteger.ZERO, _totalSupply);
+        calls.transfer(recipient, tokens_bought);
 
-        emit(new TokenPurchase(buyer, nuls_sold, tokens_bought));
-        emit(new Snapshot(buyer, Msg.address().balance(), getTokenBalance(Msg.address())));
+        emitNulsToToken(buyer, nuls_sold, tokens_bought);
         return tokens_bought;
 
     }
@@ -90,17 +339,20 @@ public class GoblinSwap implements Contract {
 
     private BigInteger nulsToTokenOutput(BigInteger tokens_bought, BigInteger max_nuls, BigInteger deadline, Address buyer, Address recipient) {
         require(deadline.compareTo(BigInteger.valueOf(Block.timestamp())) >= 0 && tokens_bought.compareTo(BigInteger.ZERO) > 0 && max_nuls.compareTo(BigInteger.ZERO) > 0);
-        BigInteger token_reserve = getTokenBalance(Msg.address());
-        BigInteger nuls_sold = getOutputPrice(tokens_bought, Msg.address().balance().subtract(max_nuls), token_reserve);
+        require(!_auctionMode, "disabled in auction mode");
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
+        BigInteger nuls_sold = getOutputPrice(tokens_bought, nuls_reserve, token_reserve);
         BigInteger nuls_refund = max_nuls.subtract(nuls_sold);
         require(nuls_refund.compareTo(BigInteger.ZERO)>=0);
+        updateReserves(nuls_reserve.add(nuls_sold), token_reserve.subtract(tokens_bought));
+        recordNulsToToken(nuls_sold, tokens_bought);
+        accrueFees(nuls_sold, BigInteger.ZERO, _totalSupply);
         if (nuls_refund.compareTo(BigInteger.ZERO) > 0) {
             buyer.transfer(nuls_refund);
         }
-        String[][] args = new String[][]{new String[]{recipient.toString()}, new String[]{tokens_bought.toString()}};
-        token.call("transfer", null, args, null);
-        emit(new TokenPurchase(buyer, nuls_sold, tokens_bought));
-        emit(new Snapshot(buyer, Msg.address().balance(), getTokenBalance(Msg.address())));
+        calls.transfer(recipient, tokens_bought);
+        emitNulsToToken(buyer, nuls_sold, tokens_bought);
         return nuls_sold;
     }
 
@@ -118,18 +370,23 @@ public class GoblinSwap implements Contract {
 
     private BigInteger tokenToNulsInput(BigInteger tokens_sold, BigInteger min_nuls, BigInteger deadline, Address buyer, Address recipient) {
         require(deadline.compareTo(BigInteger.valueOf(Block.timestamp())) >= 0 && tokens_sold.compareTo(BigInteger.ZERO) > 0 && min_nuls.compareTo(BigInteger.ZERO) > 0);
+        if (_auctionMode) {
+            return queueOrder(TOKEN_TO_NULS, tokens_sold, min_nuls, buyer, recipient);
+        }
 
-        BigInteger token_reserve = getTokenBalance(Msg.address());
-        BigInteger nuls_bought = getInputPrice(tokens_sold, token_reserve, Msg.address().balance());
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
+        BigInteger nuls_bought = getInputPrice(tokens_sold, token_reserve, nuls_reserve);
         BigInteger wei_bought = nuls_bought;
         require(wei_bought.compareTo(min_nuls) >= 0);
+        updateReserves(nuls_reserve.subtract(wei_bought), token_reserve.add(tokens_sold));
+        recordTokenToNuls(tokens_sold, wei_bought);
+        accrueFees(BigInteger.ZERO, tokens_sold, _totalSupply);
         recipient.transfer(wei_bought);
 
-        String[][] args = new String[][]{new String[]{buyer.toString()}, new String[]{Msg.address().toString()}, new String[]{tokens_sold.toString()}};
-        token.call("transferFrom", null, args, null);
+        calls.transferFrom(buyer, tokens_sold);
 
-        emit(new NulsPurchase(buyer, tokens_sold, wei_bought));
-        emit(new Snapshot(buyer, Msg.address().balance(), getTokenBalance(Msg.address())));
+        emitTokenToNuls(buyer, tokens_sold, wei_bought);
 
         return wei_bought;
     }
@@ -145,14 +402,17 @@ public class GoblinSwap implements Contract {
 
     private BigInteger tokenToNulsOutput(BigInteger nuls_bought, BigInteger max_tokens, BigInteger deadline, Address buyer, Address recipient) {
         require(deadline.compareTo(BigInteger.valueOf(Block.timestamp())) >= 0 && nuls_bought.compareTo(BigInteger.ZERO) > 0);
-        BigInteger token_reserve = getTokenBalance(Msg.address());
-        BigInteger tokens_sold = getOutputPrice(nuls_bought, token_reserve, Msg.address().balance());
+        require(!_auctionMode, "disabled in auction mode");
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
+        BigInteger tokens_sold = getOutputPrice(nuls_bought, token_reserve, nuls_reserve);
         require(max_tokens.compareTo(tokens_sold) >= 0);
+        updateReserves(nuls_reserve.subtract(nuls_bought), token_reserve.add(tokens_sold));
+        recordTokenToNuls(tokens_sold, nuls_bought);
+        accrueFees(BigInteger.ZERO, tokens_sold, _totalSupply);
         recipient.transfer(nuls_bought);
-        String[][] args = new String[][]{new String[]{buyer.toString()}, new String[]{Msg.address().toString()}, new String[]{tokens_sold.toString()}};
-        token.call("transferFrom", null, args, null);
-        emit(new NulsPurchase(buyer, tokens_sold, nuls_bought));
-        emit(new Snapshot(buyer, Msg.address().balance(), getTokenBalance(Msg.address())));
+        calls.transferFrom(buyer, tokens_sold);
+        emitTokenToNuls(buyer, tokens_sold, nuls_bought);
         return tokens_sold;
     }
 
@@ -169,63 +429,89 @@ public class GoblinSwap implements Contract {
     private BigInteger tokenToTokenInput(BigInteger tokens_sold, BigInteger min_tokens_bought, BigInteger min_nuls_bought, BigInteger deadline, Address buyer, Address recipient, Address exchange_addr) {
         require(deadline.compareTo(BigInteger.valueOf(Block.timestamp())) >= 0 && tokens_sold.compareTo(BigInteger.ZERO) > 0 && min_tokens_bought.compareTo(BigInteger.ZERO) > 0 && min_nuls_bought.compareTo(BigInteger.ZERO) > 0, "illegal input parameters");
         require(exchange_addr != null && !exchange_addr.equals(Msg.address()), "illegal exchange addr");
+        require(!_auctionMode, "disabled in auction mode");
 
-        BigInteger token_reserve = getTokenBalance(Msg.address());
-        BigInteger nuls_bought = getInputPrice(tokens_sold, token_reserve, Msg.address().balance());
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
+        BigInteger nuls_bought = getInputPrice(tokens_sold, token_reserve, nuls_reserve);
         BigInteger wei_bought = nuls_bought;
 
         require(wei_bought.compareTo(min_nuls_bought) >= 0, "min nuls bought not matched");
-        String[][] args = new String[][]{new String[]{buyer.toString()}, new String[]{Msg.address().toString()}, new String[]{tokens_sold.toString()}};
-        token.call("transferFrom", null, args, null);
+        updateReserves(nuls_reserve.subtract(wei_bought), token_reserve.add(tokens_sold));
+        recordTokenToNuls(tokens_sold, wei_bought);
+        accrueFees(BigInteger.ZERO, tokens_sold, _totalSupply);
+        calls.transferFrom(buyer, tokens_sold);
 
-        String[][] args1 = new String[][]{new String[]{min_tokens_bought.toString()}, new String[]{deadline.toString()}, new String[]{recipient.toString()}};
-        BigInteger tokens_bought = new BigInteger(exchange_addr.callWithReturnValue("nulsToTokenTransferInput", null, args1, wei_bought));
-        emit(new NulsPurchase(buyer, tokens_sold, wei_bought));
-        emit(new Snapshot(buyer, Msg.address().balance(), getTokenBalance(Msg.address())));
+        BigInteger tokens_bought = calls.nulsToTokenTransferInput(exchange_addr, min_tokens_bought, deadline, recipient, wei_bought);
+        emitTokenToNuls(buyer, tokens_sold, wei_bought);
         return tokens_bought;
     }
 
+    private Address getExchangeAddress(Address token_addr) {
+        Address exchange_addr = exchanges.get(token_addr);
+        if (exchange_addr == null) {
+            exchange_addr = lookupExchange(token_addr);
+            exchanges.put(token_addr, exchange_addr);
+        }
+        return exchange_addr;
+    }
+
+    private Address lookupExchange(Address token_addr) {
+        String exchange_addr = calls.getExchange(token_addr);
+        require(exchange_addr != null && exchange_addr.length() > 0, "exchange not exist");
+        return new Address(exchange_addr);
+    }
+
+    @View
+    public Address getCachedExchange(Address token_addr) {
+        return exchanges.get(token_addr);
+    }
+
+    public Address refreshExchange(Address token_addr) {
+        require(token_addr != null, "illegal token addr");
+        Address exchange_addr = lookupExchange(token_addr);
+        exchanges.put(token_addr, exchange_addr);
+        return exchange_addr;
+    }
+
     public BigInteger tokenToTokenSwapInput(BigInteger tokens_sold, BigInteger min_tokens_bought, BigInteger min_nuls_bought, BigInteger deadline, Address token_addr) {
-        String[][] args = new String[][]{new String[]{token_addr.toString()}};
-        Address exchange_addr = new Address(factory.callWithReturnValue("getExchange", null, args, null));
+        Address exchange_addr = getExchangeAddress(token_addr);
         return tokenToTokenInput(tokens_sold, min_tokens_bought, min_nuls_bought, deadline, Msg.sender(), Msg.sender(), exchange_addr);
     }
 
     public BigInteger tokenToTokenTransferInput(BigInteger tokens_sold, BigInteger min_tokens_bought, BigInteger min_nuls_bought, BigInteger deadline, Address recipient, Address token_addr) {
-        String[][] args = new String[][]{new String[]{token_addr.toString()}};
-        Address exchange_addr = new Address(factory.callWithReturnValue("getExchange", null, args, null));
+        Address exchange_addr = getExchangeAddress(token_addr);
         return tokenToTokenInput(tokens_sold, min_tokens_bought, min_nuls_bought, deadline, Msg.sender(), recipient, exchange_addr);
     }
 
     private BigInteger tokenToTokenOutput(BigInteger tokens_bought, BigInteger max_tokens_sold, BigInteger max_nuls_sold, BigInteger deadline, Address buyer, Address recipient, Address exchange_addr) {
         require(deadline.compareTo(BigInteger.valueOf(Block.timestamp())) >= 0 && (tokens_bought.compareTo(BigInteger.ZERO) > 0 && max_nuls_sold.compareTo(BigInteger.ZERO) > 0), "illegal input parameters");
         require(exchange_addr != null && !exchange_addr.equals(Msg.address()));
-        String[][] args = new String[][]{new String[]{tokens_bought.toString()}};
-        BigInteger nuls_bought = new BigInteger(exchange_addr.callWithReturnValue("getNulsToTokenOutputPrice", null, args, null));
-        BigInteger token_reserve = getTokenBalance(Msg.address());
-        BigInteger tokens_sold = getOutputPrice(nuls_bought, token_reserve, Msg.address().balance());
+        require(!_auctionMode, "disabled in auction mode");
+        BigInteger nuls_bought = calls.getNulsToTokenOutputPrice(exchange_addr, tokens_bought);
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
+        BigInteger tokens_sold = getOutputPrice(nuls_bought, token_reserve, nuls_reserve);
         require(max_tokens_sold.compareTo(tokens_sold) >= 0 && max_nuls_sold.compareTo(nuls_bought) >= 0, "max token sold not matched");
+        updateReserves(nuls_reserve.subtract(nuls_bought), token_reserve.add(tokens_sold));
+        recordTokenToNuls(tokens_sold, nuls_bought);
+        accrueFees(BigInteger.ZERO, tokens_sold, _totalSupply);
 
-        String[][] args1 = new String[][]{new String[]{buyer.toString()}, new String[]{Msg.address().toString()}, new String[]{tokens_sold.toString()}};
-        token.call("transferFrom", null, args1, null);
+        calls.transferFrom(buyer, tokens_sold);
 
-        String[][] args2 = new String[][]{new String[]{tokens_bought.toString()}, new String[]{deadline.toString()}, new String[]{recipient.toString()}};
-        BigInteger nuls_sold = new BigInteger(exchange_addr.callWithReturnValue("nulsToTokenTransferOutput", null, args2, nuls_bought));
-        emit(new NulsPurchase(buyer, tokens_sold, nuls_bought));
-        emit(new Snapshot(buyer, Msg.address().balance(), getTokenBalance(Msg.address())));
+        BigInteger nuls_sold = calls.nulsToTokenTransferOutput(exchange_addr, tokens_bought, deadline, recipient, nuls_bought);
+        emitTokenToNuls(buyer, tokens_sold, nuls_bought);
         return tokens_sold;
     }
 
 
     public BigInteger tokenToTokenSwapOutput(BigInteger tokens_bought, BigInteger max_tokens_sold, BigInteger max_nuls_sold, BigInteger deadline, Address token_addr) {
-        String[][] args = new String[][]{new String[]{token_addr.toString()}};
-        Address exchange_addr = new Address(factory.callWithReturnValue("getExchange", null, args, null));
+        Address exchange_addr = getExchangeAddress(token_addr);
         return tokenToTokenOutput(tokens_bought, max_tokens_sold, max_nuls_sold, deadline, Msg.sender(), Msg.sender(), exchange_addr);
     }
 
     public BigInteger tokenToTokenTransferOutput(BigInteger tokens_bought, BigInteger max_tokens_sold, BigInteger max_nuls_sold, BigInteger deadline, Address recipient, Address token_addr) {
-        String[][] args = new String[][]{new String[]{token_addr.toString()}};
-        Address exchange_addr = new Address(factory.callWithReturnValue("getExchange", null, args, null));
+        Address exchange_addr = getExchangeAddress(token_addr);
         return tokenToTokenOutput(tokens_bought, max_tokens_sold, max_nuls_sold, deadline, Msg.sender(), recipient, exchange_addr);
     }
 
@@ -249,38 +535,428 @@ public class GoblinSwap implements Contract {
         return tokenToTokenOutput(tokens_bought, max_tokens_sold, max_nuls_sold, deadline, Msg.sender(), recipient, exchange_addr);
     }
 
+    @Payable
+    @JSONSerializable
+    public List<BigInteger> batchSwap(int[] directions, BigInteger[] amounts, BigInteger[] min_outs, String[] recipients, BigInteger deadline) {
+        require(deadline.compareTo(BigInteger.valueOf(Block.timestamp())) >= 0 && directions != null && directions.length > 0, "illegal input parameters");
+        require(amounts != null && amounts.length == directions.length && min_outs != null && min_outs.length == directions.length && recipients != null && recipients.length == directions.length, "legs length not matched");
+        require(!_auctionMode, "disabled in auction mode");
+        Address buyer = Msg.sender();
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
+        BigInteger nuls_sold = BigInteger.ZERO;
+        BigInteger tokens_bought = BigInteger.ZERO;
+        BigInteger tokens_sold = BigInteger.ZERO;
+        BigInteger nuls_bought = BigInteger.ZERO;
+        Map<Address, BigInteger> tokens_out = new HashMap<Address, BigInteger>();
+        Map<Address, BigInteger> nuls_out = new HashMap<Address, BigInteger>();
+        List<BigInteger> amounts_out = new ArrayList<BigInteger>();
+
+        for (int i = 0; i < directions.length; i++) {
+            require(amounts[i].compareTo(BigInteger.ZERO) > 0 && min_outs[i].compareTo(BigInteger.ZERO) > 0, "illegal input parameters");
+            Address recipient = new Address(recipients[i]);
+            require(!recipient.equals(Msg.address()), "illegal recipient");
+            BigInteger amount_out;
+            if (directions[i] == NULS_TO_TOKEN) {
+                amount_out = getInputPrice(amounts[i], nuls_reserve, token_reserve);
+                nuls_reserve = nuls_reserve.add(amounts[i]);
+                token_reserve = token_reserve.subtract(amount_out);
+                nuls_sold = nuls_sold.add(amounts[i]);
+                tokens_bought = tokens_bought.add(amount_out);
+                addTo(tokens_out, recipient, amount_out);
+                recordNulsToToken(amounts[i], amount_out);
+            } else {
+                require(directions[i] == TOKEN_TO_NULS, "illegal direction");
+                amount_out = getInputPrice(amounts[i], token_reserve, nuls_reserve);
+                token_reserve = token_reserve.add(amounts[i]);
+                nuls_reserve = nuls_reserve.subtract(amount_out);
+                tokens_sold = tokens_sold.add(amounts[i]);
+                nuls_bought = nuls_bought.add(amount_out);
+                addTo(nuls_out, recipient, amount_out);
+                recordTokenToNuls(amounts[i], amount_out);
+            }
+            require(amount_out.compareTo(min_outs[i]) >= 0, "min out not matched");
+            amounts_out.add(amount_out);
+        }
+        require(nuls_sold.compareTo(Msg.value()) == 0, "nuls sold not matched value");
+        updateReserves(nuls_reserve, token_reserve);
+        accrueFees(nuls_sold, tokens_sold, _totalSupply);
+
+        BigInteger buyer_tokens = tokens_out.remove(buyer);
+        BigInteger tokens_due = buyer_tokens != null ? tokens_sold.subtract(buyer_tokens) : tokens_sold;
+        if (tokens_due.compareTo(BigInteger.ZERO) > 0) {
+            calls.transferFrom(buyer, tokens_due);
+        } else if (tokens_due.compareTo(BigInteger.ZERO) < 0) {
+            tokens_out.put(buyer, tokens_due.negate());
+        }
+        for (Map.Entry<Address, BigInteger> entry : tokens_out.entrySet()) {
+            calls.transfer(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Address, BigInteger> entry : nuls_out.entrySet()) {
+            entry.getKey().transfer(entry.getValue());
+        }
+
+        if (_eventMode == EVENT_MODE_COMPACT) {
+            emit(new PoolUpdate(buyer, BATCH_SWAP, nuls_sold, nuls_bought, tokens_sold, tokens_bought, _nulsReserve, _tokenReserve, BigInteger.ZERO));
+        } else {
+            if (nuls_sold.compareTo(BigInteger.ZERO) > 0) {
+                emit(new TokenPurchase(buyer, nuls_sold, tokens_bought));
+            }
+            if (tokens_sold.compareTo(BigInteger.ZERO) > 0) {
+                emit(new NulsPurchase(buyer, tokens_sold, nuls_bought));
+            }
+            emit(new Snapshot(buyer, _nulsReserve, _tokenReserve));
+        }
+        return amounts_out;
+    }
+
+    @View
+    public boolean isAuctionMode() {
+        return _auctionMode;
+    }
+
+    @View
+    public int getAuctionOrderCount() {
+        return _orderAmounts.size();
+    }
+
+    /**
+     * In auction mode the exact-input NULS/token swaps of a block are queued and settled together, at one
+     * clearing price, by the first pool operation of a later block or by {@link #settleAuction()}. Exact
+     * output, token to token and batch swaps are disabled while it is on, and only accounts may queue, so
+     * a hop from another exchange or a router cannot lose its min_out check. Fills and refunds are credited
+     * and paid out by {@link #claim()}. Turning it off settles the queue.
+     */
+    public void setAuctionMode(boolean enabled) {
+        require(Msg.sender().equals(owner), "only owner");
+        if (!enabled && _orderAmounts.size() > 0) {
+            clearAuction();
+        }
+        _auctionMode = enabled;
+    }
+
+    public void settleAuction() {
+        require(_orderAmounts.size() > 0 && Block.number() > _auctionBlock, "auction not due");
+        clearAuction();
+    }
+
+    @View
+    @JSONSerializable
+    public Map<String, Object> getClaimable(Address owner) {
+        BigInteger nuls_amount = _claimableNuls.get(owner);
+        BigInteger token_amount = _claimableTokens.get(owner);
+        Map<String, Object> claimable = new HashMap<String, Object>();
+        claimable.put("nuls", nuls_amount != null ? nuls_amount : BigInteger.ZERO);
+        claimable.put("tokens", token_amount != null ? token_amount : BigInteger.ZERO);
+        return claimable;
+    }
+
+    /**
+     * Pays the caller the auction fills and refunds credited to it. Settles a due auction first.
+     */
+    public void claim() {
+        settleAuctionIfDue();
+        Address owner = Msg.sender();
+        BigInteger nuls_amount = _claimableNuls.remove(owner);
+        BigInteger token_amount = _claimableTokens.remove(owner);
+        require(nuls_amount != null || token_amount != null, "nothing to claim");
+        if (nuls_amount != null) {
+            _unclaimedNuls = _unclaimedNuls.subtract(nuls_amount);
+            owner.transfer(nuls_amount);
+        }
+        if (token_amount != null) {
+            _unclaimedTokens = _unclaimedTokens.subtract(token_amount);
+            calls.transfer(owner, token_amount);
+        }
+    }
+
+    private void settleAuctionIfDue() {
+        if (_orderAmounts.size() > 0 && Block.number() > _auctionBlock) {
+            clearAuction();
+        }
+    }
+
+    private BigInteger queueOrder(int direction, BigInteger amount_in, BigInteger min_out, Address buyer, Address recipient) {
+        require(!Msg.sender().isContract(), "contracts cannot queue auction orders");
+        settleAuctionIfDue();
+        require(_orderAmounts.size() < MAX_AUCTION_ORDERS, "auction is full");
+        require(_nulsReserve.compareTo(BigInteger.ZERO) > 0 && _tokenReserve.compareTo(BigInteger.ZERO) > 0, "no liquidity");
+        if (direction == NULS_TO_TOKEN) {
+            _queuedNuls = _queuedNuls.add(amount_in);
+        } else {
+            _queuedTokens = _queuedTokens.add(amount_in);
+            calls.transferFrom(buyer, amount_in);
+        }
+        _auctionBlock = Block.number();
+        _orderDirections.add(direction);
+        _orderAmounts.add(amount_in);
+        _orderMinOuts.add(min_out);
+        _orderBuyers.add(buyer);
+        _orderRecipients.add(recipient);
+        emit(new AuctionOrder(buyer, recipient, direction, amount_in, min_out));
+        return BigInteger.ZERO;
+    }
+
+    /**
+     * Buy and sell orders are matched against each other and only the imbalance x trades on the curve,
+     * chosen so both sides see the same price: buyers share tokens_in + out(x), sellers nuls_in - x.
+     * With fee f = 997/1000 the buy-side imbalance is (f * T * nuls_in - N * tokens_in) / (f * (tokens_in + T))
+     * for reserves N, T, and symmetrically for sells. Orders whose pro-rata fill misses min_out are
+     * refunded and the price is cleared again without them, as is everything if the pool was drained;
+     * rounding dust stays in the pool. Nothing is transferred here: fills and refunds are credited for
+     * {@link #claim()}, so a recipient that rejects NULS cannot block settlement.
+     */
+    private void clearAuction() {
+        int count = _orderAmounts.size();
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
+        boolean[] cancelled = new boolean[count];
+        BigInteger[] fills = new BigInteger[count];
+        if (nuls_reserve.compareTo(BigInteger.ZERO) == 0 || token_reserve.compareTo(BigInteger.ZERO) == 0) {
+            for (int i = 0; i < count; i++) {
+                cancelled[i] = true;
+            }
+        }
+        BigInteger nuls_in;
+        BigInteger tokens_in;
+        BigInteger nuls_to_pool;
+        BigInteger tokens_to_pool;
+        boolean changed;
+        do {
+            nuls_in = BigInteger.ZERO;
+            tokens_in = BigInteger.ZERO;
+            nuls_to_pool = BigInteger.ZERO;
+            tokens_to_pool = BigInteger.ZERO;
+            for (int i = 0; i < count; i++) {
+                if (cancelled[i]) {
+                    continue;
+                }
+                if (_orderDirections.get(i) == NULS_TO_TOKEN) {
+                    nuls_in = nuls_in.add(_orderAmounts.get(i));
+                } else {
+                    tokens_in = tokens_in.add(_orderAmounts.get(i));
+                }
+            }
+            BigInteger tokens_to_buyers = tokens_in;
+            BigInteger nuls_to_sellers = nuls_in;
+            BigInteger buy_pressure = FEE_NUMERATOR.multiply(token_reserve).multiply(nuls_in).subtract(FEE_DENOMINATOR.multiply(nuls_reserve).multiply(tokens_in));
+            BigInteger sell_pressure = FEE_NUMERATOR.multiply(nuls_reserve).multiply(tokens_in).subtract(FEE_DENOMINATOR.multiply(token_reserve).multiply(nuls_in));
+            if (buy_pressure.compareTo(BigInteger.ZERO) > 0) {
+                nuls_to_pool = buy_pressure.divide(FEE_NUMERATOR.multiply(tokens_in.add(token_reserve)));
+                if (nuls_to_pool.compareTo(BigInteger.ZERO) > 0) {
+                    tokens_to_buyers = tokens_in.add(getInputPrice(nuls_to_pool, nuls_reserve, token_reserve));
+                    nuls_to_sellers = nuls_in.subtract(nuls_to_pool);
+                }
+            } else if (sell_pressure.compareTo(BigInteger.ZERO) > 0) {
+                tokens_to_pool = sell_pressure.divide(FEE_NUMERATOR.multiply(nuls_in.add(nuls_reserve)));
+                if (tokens_to_pool.compareTo(BigInteger.ZERO) > 0) {
+                    nuls_to_sellers = nuls_in.add(getInputPrice(tokens_to_pool, token_reserve, nuls_reserve));
+                    tokens_to_buyers = tokens_in.subtract(tokens_to_pool);
+                }
+            }
+            changed = false;
+            for (int i = 0; i < count; i++) {
+                if (cancelled[i]) {
+                    continue;
+                }
+                if (_orderDirections.get(i) == NULS_TO_TOKEN) {
+                    fills[i] = _orderAmounts.get(i).multiply(tokens_to_buyers).divide(nuls_in);
+                } else {
+                    fills[i] = _orderAmounts.get(i).multiply(nuls_to_sellers).divide(tokens_in);
+                }
+                if (fills[i].compareTo(_orderMinOuts.get(i)) < 0) {
+                    cancelled[i] = true;
+                    changed = true;
+                }
+            }
+        } while (changed);
+
+        BigInteger tokens_paid = BigInteger.ZERO;
+        BigInteger nuls_paid = BigInteger.ZERO;
+        for (int i = 0; i < count; i++) {
+            boolean buy = _orderDirections.get(i) == NULS_TO_TOKEN;
+            if (cancelled[i]) {
+                addTo(buy ? _claimableNuls : _claimableTokens, _orderBuyers.get(i), _orderAmounts.get(i));
+            } else if (buy) {
+                addTo(_claimableTokens, _orderRecipients.get(i), fills[i]);
+                tokens_paid = tokens_paid.add(fills[i]);
+                recordNulsToToken(_orderAmounts.get(i), fills[i]);
+            } else {
+                addTo(_claimableNuls, _orderRecipients.get(i), fills[i]);
+                nuls_paid = nuls_paid.add(fills[i]);
+                recordTokenToNuls(_orderAmounts.get(i), fills[i]);
+            }
+        }
+        updateReserves(nuls_reserve.add(nuls_in).subtract(nuls_paid), token_reserve.add(tokens_in).subtract(tokens_paid));
+        accrueFees(nuls_to_pool, tokens_to_pool, _totalSupply);
+        List<Integer> directions = _orderDirections;
+        List<BigInteger> amounts = _orderAmounts;
+        List<Address> buyers = _orderBuyers;
+        _orderDirections = new ArrayList<Integer>();
+        _orderAmounts = new ArrayList<BigInteger>();
+        _orderMinOuts = new ArrayList<BigInteger>();
+        _orderBuyers = new ArrayList<Address>();
+        _orderRecipients = new ArrayList<Address>();
+        _unclaimedNuls = _unclaimedNuls.add(_queuedNuls.subtract(nuls_in)).add(nuls_paid);
+        _unclaimedTokens = _unclaimedTokens.add(_queuedTokens.subtract(tokens_in)).add(tokens_paid);
+        _queuedNuls = BigInteger.ZERO;
+        _queuedTokens = BigInteger.ZERO;
+
+        if (_eventMode == EVENT_MODE_COMPACT) {
+            emit(new PoolUpdate(Msg.sender(), AUCTION, nuls_in, nuls_paid, tokens_in, tokens_paid, _nulsReserve, _tokenReserve, BigInteger.ZERO));
+        } else {
+            for (int i = 0; i < count; i++) {
+                if (cancelled[i]) {
+                    continue;
+                }
+                if (directions.get(i) == NULS_TO_TOKEN) {
+                    emit(new TokenPurchase(buyers.get(i), amounts.get(i), fills[i]));
+                } else {
+                    emit(new NulsPurchase(buyers.get(i), amounts.get(i), fills[i]));
+                }
+            }
+            emit(new Snapshot(Msg.sender(), _nulsReserve, _tokenReserve));
+        }
+    }
+
+    private void addTo(Map<Address, BigInteger> amounts, Address address, BigInteger amount) {
+        if (amounts.get(address) != null) {
+            amounts.put(address, amounts.get(address).add(amount));
+        } else {
+            amounts.put(address, amount);
+        }
+    }
+
     @View
     public BigInteger getNulsToTokenInputPrice(BigInteger nuls_sold) {
         require(nuls_sold.compareTo(BigInteger.ZERO) > 0, "nuls sold must greater than 0");
-        BigInteger token_reserve = getTokenBalance(Msg.address());
-        return getInputPrice(nuls_sold, Msg.address().balance(), token_reserve);
+        return getInputPrice(nuls_sold, _nulsReserve, _tokenReserve);
     }
 
 
     @View
     public BigInteger getTokenToNulsInputPrice(BigInteger tokens_sold) {
         require(tokens_sold.compareTo(BigInteger.ZERO) > 0, "tokens sold must greater than 0");
-        BigInteger token_reserve = getTokenBalance(Msg.address());
-        BigInteger nuls_bought = getInputPrice(tokens_sold, token_reserve, Msg.address().balance());
+        BigInteger nuls_bought = getInputPrice(tokens_sold, _tokenReserve, _nulsReserve);
         return nuls_bought;
     }
 
     @View
     public BigInteger getTokenToNulsOutputPrice(BigInteger nuls_bought) {
         require(nuls_bought.compareTo(BigInteger.ZERO) > 0, "nuls bought must greater than 0");
-        BigInteger token_reserve = getTokenBalance(Msg.address());
-        return getOutputPrice(nuls_bought, token_reserve, Msg.address().balance());
+        return getOutputPrice(nuls_bought, _tokenReserve, _nulsReserve);
     }
 
 
     @View
     public BigInteger getNulsToTokenOutputPrice(BigInteger tokens_bought) {
         require(tokens_bought.compareTo(BigInteger.ZERO) > 0, "tokens bought must greater than 0");
-        BigInteger token_reserve = getTokenBalance(Msg.address());
-        BigInteger nuls_sold = getOutputPrice(tokens_bought, Msg.address().balance(), token_reserve);
+        BigInteger nuls_sold = getOutputPrice(tokens_bought, _nulsReserve, _tokenReserve);
         return nuls_sold;
     }
 
+    @View
+    @JSONSerializable
+    public List<BigInteger> getNulsToTokenInputPrices(BigInteger[] nuls_sold) {
+        return getInputPrices(nuls_sold, _nulsReserve, _tokenReserve);
+    }
+
+    @View
+    @JSONSerializable
+    public List<BigInteger> getTokenToNulsInputPrices(BigInteger[] tokens_sold) {
+        return getInputPrices(tokens_sold, _tokenReserve, _nulsReserve);
+    }
+
+    @View
+    @JSONSerializable
+    public List<BigInteger> getTokenToNulsOutputPrices(BigInteger[] nuls_bought) {
+        return getOutputPrices(nuls_bought, _tokenReserve, _nulsReserve);
+    }
+
+    @View
+    @JSONSerializable
+    public List<BigInteger> getNulsToTokenOutputPrices(BigInteger[] tokens_bought) {
+        return getOutputPrices(tokens_bought, _nulsReserve, _tokenReserve);
+    }
+
+    @View
+    @JSONSerializable
+    public List<BigInteger> getQuoteCurve(int direction, BigInteger max_amount, int steps) {
+        require(direction == NULS_TO_TOKEN || direction == TOKEN_TO_NULS, "illegal direction");
+        require(max_amount.compareTo(BigInteger.ZERO) > 0 && steps > 0 && steps <= MAX_QUOTE_STEPS, "illegal input parameters");
+        BigInteger[] amounts = new BigInteger[steps];
+        for (int i = 0; i < steps; i++) {
+            amounts[i] = max_amount.multiply(BigInteger.valueOf(i + 1)).divide(BigInteger.valueOf(steps));
+        }
+        if (direction == NULS_TO_TOKEN) {
+            return getInputPrices(amounts, _nulsReserve, _tokenReserve);
+        }
+        return getInputPrices(amounts, _tokenReserve, _nulsReserve);
+    }
+
+    private List<BigInteger> getInputPrices(BigInteger[] input_amounts, BigInteger input_reserve, BigInteger output_reserve) {
+        require(input_amounts != null && input_amounts.length > 0, "amounts must not be empty");
+        List<BigInteger> prices = new ArrayList<BigInteger>();
+        for (BigInteger input_amount : input_amounts) {
+            require(input_amount.compareTo(BigInteger.ZERO) > 0, "amount must greater than 0");
+            prices.add(getInputPrice(input_amount, input_reserve, output_reserve));
+        }
+        return prices;
+    }
+
+    private List<BigInteger> getOutputPrices(BigInteger[] output_amounts, BigInteger input_reserve, BigInteger output_reserve) {
+        require(output_amounts != null && output_amounts.length > 0, "amounts must not be empty");
+        List<BigInteger> prices = new ArrayList<BigInteger>();
+        for (BigInteger output_amount : output_amounts) {
+            require(output_amount.compareTo(BigInteger.ZERO) > 0, "amount must greater than 0");
+            prices.add(getOutputPrice(output_amount, input_reserve, output_reserve));
+        }
+        return prices;
+    }
+
+    /**
+     * Bumped whenever the reserves change; every quote is a function of the reserves, so a client can keep
+     * its quotes until this moves.
+     */
+    @View
+    public long getReserveVersion() {
+        return _reserveVersion;
+    }
+
+    @View
+    public long getReserveBlock() {
+        return _reserveBlock;
+    }
+
+    /**
+     * NULS reserve, token reserve, total LP supply and the block the reserves last changed in.
+     */
+    @View
+    @JSONSerializable
+    public List<BigInteger> getReserves() {
+        List<BigInteger> reserves = new ArrayList<BigInteger>();
+        reserves.add(_nulsReserve);
+        reserves.add(_tokenReserve);
+        reserves.add(_totalSupply);
+        reserves.add(BigInteger.valueOf(_reserveBlock));
+        return reserves;
+    }
+
+    @View
+    public Address getTokenAddress() {
+        return token;
+    }
+
+    @View
+    public BigInteger getNulsReserve() {
+        return _nulsReserve;
+    }
+
+    @View
+    public BigInteger getTokenReserve() {
+        return _tokenReserve;
+    }
+
     @View
     public BigInteger getTotalSupply() {
         return _totalSupply;
@@ -288,8 +964,8 @@ public class GoblinSwap implements Contract {
 
     @View
     public BigInteger getLiquidityTokenAmount(BigInteger nulsAmount){
-        BigInteger nuls_reserve = Msg.address().balance();
-        BigInteger token_reserve = getTokenBalance(Msg.address());
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
         return (nulsAmount.multiply(token_reserve).divide(nuls_reserve)).add(BigInteger.ONE);
     }
 
@@ -299,8 +975,8 @@ public class GoblinSwap implements Contract {
         BigInteger total_liquidity = _totalSupply;
         if (total_liquidity.compareTo(BigInteger.ZERO) > 0) {
             require(min_liquidity.compareTo(BigInteger.ZERO) > 0, "min_liquidity must greater than 0");
-            BigInteger nuls_reserve = Msg.address().balance();
-            BigInteger token_reserve = getTokenBalance(Msg.address());
+            BigInteger nuls_reserve = _nulsReserve;
+            BigInteger token_reserve = _tokenReserve;
             BigInteger token_amount = (nulsAmount.multiply(token_reserve).divide(nuls_reserve)).add(BigInteger.ONE);
             BigInteger liquidity_minted = nulsAmount.multiply(total_liquidity).divide(nuls_reserve);
             require(max_tokens.compareTo(token_amount) >= 0 && liquidity_minted.compareTo(min_liquidity) >= 0, "max tokens not meet or liquidity_minted not meet min_liquidity");
@@ -318,49 +994,39 @@ public class GoblinSwap implements Contract {
     @Payable
     public BigInteger addLiquidity(BigInteger min_liquidity, BigInteger max_tokens, BigInteger deadline) {
         require(deadline.compareTo(BigInteger.valueOf(Block.timestamp())) > 0 && max_tokens.compareTo(BigInteger.ZERO) > 0 && Msg.value().compareTo(BigInteger.ZERO) > 0, "INVALID_ARGUMENT");
+        settleAuctionIfDue();
         BigInteger total_liquidity = _totalSupply;
         if (total_liquidity.compareTo(BigInteger.ZERO) > 0) {
             require(min_liquidity.compareTo(BigInteger.ZERO) > 0, "min_liquidity must greater than 0");
-            BigInteger nuls_reserve = Msg.address().balance().subtract(Msg.value());
-            BigInteger token_reserve = getTokenBalance(Msg.address());
+            BigInteger nuls_reserve = _nulsReserve;
+            BigInteger token_reserve = _tokenReserve;
             BigInteger token_amount = (Msg.value().multiply(token_reserve).divide(nuls_reserve)).add(BigInteger.ONE);
             BigInteger liquidity_minted = Msg.value().multiply(total_liquidity).divide(nuls_reserve);
             require(max_tokens.compareTo(token_amount) >= 0 && liquidity_minted.compareTo(min_liquidity) >= 0, "max tokens not meet or liquidity_minted not meet min_liquidity");
-            if (_balances.get(Msg.sender()) != null) {
-                _balances.put(Msg.sender(), _balances.get(Msg.sender()).add(liquidity_minted));
-            } else {
-                _balances.put(Msg.sender(), liquidity_minted);
-            }
+            addTo(_balances, Msg.sender(), liquidity_minted);
             _totalSupply = total_liquidity.add(liquidity_minted);
-            String[][] args1 = new String[][]{new String[]{Msg.sender().toString()}, new String[]{Msg.address().toString()}, new String[]{token_amount.toString()}};
-            token.call("transferFrom", null, args1, null);
-            String[][] args2 = new String[][]{new String[]{Msg.sender().toString()}, new String[]{liquidity_minted.toString()}, new String[]{Msg.value().toString()}, new String[]{token_amount.toString()}};
-            lpToken.call("addLiquidity", null, args2, null);
-
-            emit(new AddLiquidity(Msg.sender(), Msg.value(), token_amount));
-            emit(new Snapshot(Msg.sender(), Msg.address().balance(), getTokenBalance(Msg.address())));
-            emit(new TransferEvent(null, Msg.sender(), liquidity_minted));
+            updateReserves(nuls_reserve.add(Msg.value()), token_reserve.add(token_amount));
+            _addLiquidityCount++;
+            recordLpChange(Msg.sender(), liquidity_minted, Msg.value(), token_amount);
+            calls.transferFrom(Msg.sender(), token_amount);
+
+            emitAddLiquidity(Msg.sender(), ADD_LIQUIDITY, Msg.value(), token_amount, liquidity_minted);
             return liquidity_minted;
         } else {
             require(factory != null && token != null && Msg.value().compareTo(BigInteger.valueOf(10000000)) >= 0, "INVALID_VALUE");
-            String[][] args = new String[][]{new String[]{token.toString()}};
-            Address exchange_addr = new Address(factory.callWithReturnValue("getExchange", null, args, null));
+            Address exchange_addr = getExchangeAddress(token);
             require(exchange_addr.equals(Msg.address()), "token address not meet exchange");
             BigInteger token_amount = max_tokens;
-            BigInteger initial_liquidity = Msg.address().balance();
+            BigInteger initial_liquidity = Msg.address().balance().subtract(_queuedNuls).subtract(_unclaimedNuls);
             _totalSupply = initial_liquidity;
             _balances.put(Msg.sender(), initial_liquidity);
 
-            String[][] args1 = new String[][]{new String[]{Msg.sender().toString()}, new String[]{Msg.address().toString()}, new String[]{token_amount.toString()}};
-            token.call("transferFrom", null, args1, null);
-
-
-            String[][] args2 = new String[][]{new String[]{Msg.sender().toString()}, new String[]{initial_liquidity.toString()}, new String[]{Msg.value().toString()}, new String[]{token_amount.toString()}};
-            lpToken.call("addLiquidity", null, args2, null);
+            calls.transferFrom(Msg.sender(), token_amount);
+            updateReserves(initial_liquidity, calls.selfBalance().subtract(_queuedTokens).subtract(_unclaimedTokens));
+            _addLiquidityCount++;
+            recordLpChange(Msg.sender(), initial_liquidity, Msg.value(), token_amount);
 
-            emit(new AddLiquidity(Msg.sender(), Msg.value(), token_amount));
-            emit(new Snapshot(Msg.sender(), Msg.address().balance(), getTokenBalance(Msg.address())));
-            emit(new TransferEvent(null, Msg.sender(), initial_liquidity));
+            emitAddLiquidity(Msg.sender(), ADD_LIQUIDITY, Msg.value(), token_amount, initial_liquidity);
             return initial_liquidity;
         }
     }
@@ -368,31 +1034,307 @@ public class GoblinSwap implements Contract {
 
     public void removeLiquidity(BigInteger amount, BigInteger min_nuls, BigInteger min_tokens, BigInteger deadline) {
         require(amount.compareTo(BigInteger.ZERO) > 0 && deadline.compareTo(BigInteger.valueOf(Block.timestamp())) > 0 && min_nuls.compareTo(BigInteger.ZERO) > 0 && min_tokens.compareTo(BigInteger.ZERO) > 0, "illegal input parameters");
+        settleAuctionIfDue();
         BigInteger total_liquidity = _totalSupply;
         require(total_liquidity.compareTo(BigInteger.ZERO) > 0, "total_liquidity must greater than 0");
-        BigInteger token_reserve = getTokenBalance(Msg.address());
-        BigInteger nuls_amount = amount.multiply(Msg.address().balance()).divide(total_liquidity);
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
+        BigInteger nuls_amount = amount.multiply(nuls_reserve).divide(total_liquidity);
         BigInteger token_amount = amount.multiply(token_reserve).divide(total_liquidity);
         require(nuls_amount.compareTo(min_nuls) >= 0 && token_amount.compareTo(min_tokens) >= 0, "min_token or min_nuls not meet");
-        String[][] a = new String[][]{new String[]{Msg.sender().toString()}};
-        BigInteger canUseLp = new BigInteger(lpToken.callWithReturnValue("getCanUsedLpAmount", null, a, null));
-
-        require(_balances.get(Msg.sender()) != null && canUseLp.compareTo(amount) >= 0, "can used lp amount is not enough");
-        BigInteger lastAmount = _balances.get(Msg.sender()).subtract(amount);
-        _balances.put(Msg.sender(), lastAmount.compareTo(BigInteger.ZERO) > 0 ? lastAmount : BigInteger.ZERO);
+        require(getCanUsedLpAmount(Msg.sender()).compareTo(amount) >= 0, "can used lp amount is not enough");
+        _balances.put(Msg.sender(), _balances.get(Msg.sender()).subtract(amount));
         _totalSupply = total_liquidity.subtract(amount);
+        updateReserves(nuls_reserve.subtract(nuls_amount), token_reserve.subtract(token_amount));
+        _removeLiquidityCount++;
+        recordLpChange(Msg.sender(), amount.negate(), nuls_amount.negate(), token_amount.negate());
         Msg.sender().transfer(nuls_amount);
-        String[][] args = new String[][]{new String[]{Msg.sender().toString()}, new String[]{token_amount.toString()}};
-        token.call("transfer", null, args, null);
-        String[][] args1 = new String[][]{new String[]{Msg.sender().toString()}, new String[]{amount.toString()}, new String[]{nuls_amount.toString()}, new String[]{token_amount.toString()}};
-        lpToken.call("removeLiquidity", null, args1, null);
+        calls.transfer(Msg.sender(), token_amount);
+
+        emitRemoveLiquidity(Msg.sender(), REMOVE_LIQUIDITY, nuls_amount, token_amount, amount);
 
-        emit(new RemoveLiquidity(Msg.sender(), nuls_amount, token_amount));
-        emit(new Snapshot(Msg.sender(), Msg.address().balance(), getTokenBalance(Msg.address())));
-        emit(new TransferEvent(Msg.sender(), null, amount));
+    }
+
+    /**
+     * Adds liquidity with NULS only: the share of {@code Msg.value()} that leaves the rest in pool ratio
+     * is swapped for tokens inside the pool, so no tokens move. It is logged as a NULS-only liquidity add.
+     */
+    @Payable
+    public BigInteger zapInNuls(BigInteger min_liquidity, BigInteger deadline) {
+        require(deadline.compareTo(BigInteger.valueOf(Block.timestamp())) > 0 && min_liquidity.compareTo(BigInteger.ZERO) > 0 && Msg.value().compareTo(BigInteger.ZERO) > 0, "illegal input parameters");
+        settleAuctionIfDue();
+        require(!_auctionMode, "disabled in auction mode");
+        BigInteger total_liquidity = _totalSupply;
+        require(total_liquidity.compareTo(BigInteger.ZERO) > 0, "total_liquidity must greater than 0");
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
+        BigInteger nuls_sold = getZapSwapAmount(Msg.value(), nuls_reserve);
+        BigInteger tokens_bought = getInputPrice(nuls_sold, nuls_reserve, token_reserve);
+        BigInteger liquidity_minted = getZapLiquidity(Msg.value().subtract(nuls_sold), nuls_reserve.add(nuls_sold), tokens_bought, token_reserve.subtract(tokens_bought), total_liquidity);
+        require(liquidity_minted.compareTo(min_liquidity) >= 0, "liquidity_minted not meet min_liquidity");
+        addTo(_balances, Msg.sender(), liquidity_minted);
+        _totalSupply = total_liquidity.add(liquidity_minted);
+        updateReserves(nuls_reserve.add(Msg.value()), token_reserve);
+        recordNulsToToken(nuls_sold, tokens_bought);
+        accrueFees(nuls_sold, BigInteger.ZERO, total_liquidity);
+        _addLiquidityCount++;
+        recordLpChange(Msg.sender(), liquidity_minted, Msg.value(), BigInteger.ZERO);
+
+        emitAddLiquidity(Msg.sender(), ZAP_IN, Msg.value(), BigInteger.ZERO, liquidity_minted);
+        return liquidity_minted;
+    }
 
+    public BigInteger zapInToken(BigInteger tokens_sold, BigInteger min_liquidity, BigInteger deadline) {
+        require(deadline.compareTo(BigInteger.valueOf(Block.timestamp())) > 0 && min_liquidity.compareTo(BigInteger.ZERO) > 0 && tokens_sold.compareTo(BigInteger.ZERO) > 0, "illegal input parameters");
+        settleAuctionIfDue();
+        require(!_auctionMode, "disabled in auction mode");
+        BigInteger total_liquidity = _totalSupply;
+        require(total_liquidity.compareTo(BigInteger.ZERO) > 0, "total_liquidity must greater than 0");
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
+        BigInteger tokens_swapped = getZapSwapAmount(tokens_sold, token_reserve);
+        BigInteger nuls_bought = getInputPrice(tokens_swapped, token_reserve, nuls_reserve);
+        BigInteger liquidity_minted = getZapLiquidity(nuls_bought, nuls_reserve.subtract(nuls_bought), tokens_sold.subtract(tokens_swapped), token_reserve.add(tokens_swapped), total_liquidity);
+        require(liquidity_minted.compareTo(min_liquidity) >= 0, "liquidity_minted not meet min_liquidity");
+        addTo(_balances, Msg.sender(), liquidity_minted);
+        _totalSupply = total_liquidity.add(liquidity_minted);
+        updateReserves(nuls_reserve, token_reserve.add(tokens_sold));
+        recordTokenToNuls(tokens_swapped, nuls_bought);
+        accrueFees(BigInteger.ZERO, tokens_swapped, total_liquidity);
+        _addLiquidityCount++;
+        recordLpChange(Msg.sender(), liquidity_minted, BigInteger.ZERO, tokens_sold);
+        calls.transferFrom(Msg.sender(), tokens_sold);
+
+        emitAddLiquidity(Msg.sender(), ZAP_IN, BigInteger.ZERO, tokens_sold, liquidity_minted);
+        return liquidity_minted;
     }
 
+    /**
+     * Removes liquidity as NULS only: the token share of {@code amount} is sold back to the pool at the
+     * reserves left after the withdrawal, so only NULS leaves the exchange.
+     */
+    public BigInteger zapOutNuls(BigInteger amount, BigInteger min_nuls, BigInteger deadline) {
+        require(amount.compareTo(BigInteger.ZERO) > 0 && deadline.compareTo(BigInteger.valueOf(Block.timestamp())) > 0 && min_nuls.compareTo(BigInteger.ZERO) > 0, "illegal input parameters");
+        settleAuctionIfDue();
+        require(!_auctionMode, "disabled in auction mode");
+        BigInteger total_liquidity = _totalSupply;
+        require(total_liquidity.compareTo(BigInteger.ZERO) > 0, "total_liquidity must greater than 0");
+        require(getCanUsedLpAmount(Msg.sender()).compareTo(amount) >= 0, "can used lp amount is not enough");
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
+        BigInteger nuls_amount = amount.multiply(nuls_reserve).divide(total_liquidity);
+        BigInteger token_amount = amount.multiply(token_reserve).divide(total_liquidity);
+        BigInteger nuls_bought = getInputPrice(token_amount, token_reserve.subtract(token_amount), nuls_reserve.subtract(nuls_amount));
+        BigInteger nuls_out = nuls_amount.add(nuls_bought);
+        require(nuls_out.compareTo(min_nuls) >= 0, "min_nuls not meet");
+        _balances.put(Msg.sender(), _balances.get(Msg.sender()).subtract(amount));
+        _totalSupply = total_liquidity.subtract(amount);
+        updateReserves(nuls_reserve.subtract(nuls_out), token_reserve);
+        recordTokenToNuls(token_amount, nuls_bought);
+        _removeLiquidityCount++;
+        recordLpChange(Msg.sender(), amount.negate(), nuls_out.negate(), BigInteger.ZERO);
+        accrueFees(BigInteger.ZERO, token_amount, _totalSupply);
+        Msg.sender().transfer(nuls_out);
+
+        emitRemoveLiquidity(Msg.sender(), ZAP_OUT, nuls_out, BigInteger.ZERO, amount);
+        return nuls_out;
+    }
+
+    public BigInteger zapOutToken(BigInteger amount, BigInteger min_tokens, BigInteger deadline) {
+        require(amount.compareTo(BigInteger.ZERO) > 0 && deadline.compareTo(BigInteger.valueOf(Block.timestamp())) > 0 && min_tokens.compareTo(BigInteger.ZERO) > 0, "illegal input parameters");
+        settleAuctionIfDue();
+        require(!_auctionMode, "disabled in auction mode");
+        BigInteger total_liquidity = _totalSupply;
+        require(total_liquidity.compareTo(BigInteger.ZERO) > 0, "total_liquidity must greater than 0");
+        require(getCanUsedLpAmount(Msg.sender()).compareTo(amount) >= 0, "can used lp amount is not enough");
+        BigInteger nuls_reserve = _nulsReserve;
+        BigInteger token_reserve = _tokenReserve;
+        BigInteger nuls_amount = amount.multiply(nuls_reserve).divide(total_liquidity);
+        BigInteger token_amount = amount.multiply(token_reserve).divide(total_liquidity);
+        BigInteger tokens_bought = getInputPrice(nuls_amount, nuls_reserve.subtract(nuls_amount), token_reserve.subtract(token_amount));
+        BigInteger tokens_out = token_amount.add(tokens_bought);
+        require(tokens_out.compareTo(min_tokens) >= 0, "min_tokens not meet");
+        _balances.put(Msg.sender(), _balances.get(Msg.sender()).subtract(amount));
+        _totalSupply = total_liquidity.subtract(amount);
+        updateReserves(nuls_reserve, token_reserve.subtract(tokens_out));
+        recordNulsToToken(nuls_amount, tokens_bought);
+        _removeLiquidityCount++;
+        recordLpChange(Msg.sender(), amount.negate(), BigInteger.ZERO, tokens_out.negate());
+        accrueFees(nuls_amount, BigInteger.ZERO, _totalSupply);
+        calls.transfer(Msg.sender(), tokens_out);
+
+        emitRemoveLiquidity(Msg.sender(), ZAP_OUT, BigInteger.ZERO, tokens_out, amount);
+        return tokens_out;
+    }
+
+    /**
+     * Amount of a single-asset deposit to swap so the remainder matches the pool ratio after the swap:
+     * (sqrt(r * (1997^2 * r + 4 * 997 * 1000 * a)) - 1997 * r) / (2 * 997) for the 0.3% fee.
+     */
+    @View
+    public BigInteger getZapSwapAmount(BigInteger amount, BigInteger reserve) {
+        require(amount.compareTo(BigInteger.ZERO) > 0 && reserve.compareTo(BigInteger.ZERO) > 0, "INVALID_VALUE");
+        BigInteger fee_sum = FEE_NUMERATOR.add(FEE_DENOMINATOR);
+        BigInteger root = sqrt(reserve.multiply(fee_sum.multiply(fee_sum).multiply(reserve).add(FEE_NUMERATOR.multiply(FEE_DENOMINATOR).multiply(amount).shiftLeft(2))));
+        return root.subtract(fee_sum.multiply(reserve)).divide(FEE_NUMERATOR.shiftLeft(1));
+    }
+
+    private BigInteger getZapLiquidity(BigInteger nuls_amount, BigInteger nuls_reserve, BigInteger token_amount, BigInteger token_reserve, BigInteger total_liquidity) {
+        BigInteger by_nuls = nuls_amount.multiply(total_liquidity).divide(nuls_reserve);
+        BigInteger by_tokens = token_amount.multiply(total_liquidity).divide(token_reserve);
+        return by_nuls.min(by_tokens);
+    }
+
+    private static BigInteger sqrt(BigInteger value) {
+        if (value.compareTo(BigInteger.ONE) <= 0) {
+            return value;
+        }
+        BigInteger x = BigInteger.ONE.shiftLeft((value.bitLength() + 1) / 2);
+        while (true) {
+            BigInteger y = x.add(value.divide(x)).shiftRight(1);
+            if (y.compareTo(x) >= 0) {
+                return x;
+            }
+            x = y;
+        }
+    }
+
+
+    /**
+     * Spreads the 0.3% fee kept from {@code nuls_in} and {@code tokens_in} over {@code liquidity} LP units.
+     * With no liquidity the fee stays in the pool unattributed.
+     */
+    private void accrueFees(BigInteger nuls_in, BigInteger tokens_in, BigInteger liquidity) {
+        if (liquidity.compareTo(BigInteger.ZERO) <= 0) {
+            return;
+        }
+        BigInteger fee_numerator = FEE_DENOMINATOR.subtract(FEE_NUMERATOR);
+        BigInteger denominator = FEE_DENOMINATOR.multiply(liquidity);
+        if (nuls_in.compareTo(BigInteger.ZERO) > 0) {
+            _nulsFeesPerLp = _nulsFeesPerLp.add(nuls_in.multiply(fee_numerator).shiftLeft(FEE_SHIFT).divide(denominator));
+        }
+        if (tokens_in.compareTo(BigInteger.ZERO) > 0) {
+            _tokenFeesPerLp = _tokenFeesPerLp.add(tokens_in.multiply(fee_numerator).shiftLeft(FEE_SHIFT).divide(denominator));
+        }
+    }
+
+    /**
+     * Credits {@code provider} with the fees its {@code balance} earned since its last checkpoint, still
+     * scaled by 2^112, and moves the checkpoint to the current accumulators.
+     */
+    private void checkpointFees(Address provider, BigInteger balance) {
+        BigInteger nuls_checkpoint = _nulsFeeCheckpoints.get(provider);
+        if (nuls_checkpoint != null && balance.compareTo(BigInteger.ZERO) > 0) {
+            addTo(_nulsFeesAccrued, provider, balance.multiply(_nulsFeesPerLp.subtract(nuls_checkpoint)));
+            addTo(_tokenFeesAccrued, provider, balance.multiply(_tokenFeesPerLp.subtract(_tokenFeeCheckpoints.get(provider))));
+        }
+        _nulsFeeCheckpoints.put(provider, _nulsFeesPerLp);
+        _tokenFeeCheckpoints.put(provider, _tokenFeesPerLp);
+    }
+
+    /**
+     * NULS and token fees earned by {@code owner}'s liquidity over its lifetime, including since its last
+     * add or remove. Fees are earned by swaps only; they are part of the reserves a removal pays out.
+     */
+    @View
+    @JSONSerializable
+    public Map<String, Object> getAccruedFees(Address owner) {
+        BigInteger nuls_fees = _nulsFeesAccrued.get(owner);
+        BigInteger token_fees = _tokenFeesAccrued.get(owner);
+        nuls_fees = nuls_fees != null ? nuls_fees : BigInteger.ZERO;
+        token_fees = token_fees != null ? token_fees : BigInteger.ZERO;
+        BigInteger nuls_checkpoint = _nulsFeeCheckpoints.get(owner);
+        if (nuls_checkpoint != null) {
+            BigInteger balance = getLpBalance(owner);
+            nuls_fees = nuls_fees.add(balance.multiply(_nulsFeesPerLp.subtract(nuls_checkpoint)));
+            token_fees = token_fees.add(balance.multiply(_tokenFeesPerLp.subtract(_tokenFeeCheckpoints.get(owner))));
+        }
+        Map<String, Object> fees = new HashMap<String, Object>();
+        fees.put("nulsFees", nuls_fees.shiftRight(FEE_SHIFT));
+        fees.put("tokenFees", token_fees.shiftRight(FEE_SHIFT));
+        return fees;
+    }
+
+    private void recordLpChange(Address provider, BigInteger liquidity, BigInteger nuls_amount, BigInteger token_amount) {
+        checkpointFees(provider, getLpBalance(provider).subtract(liquidity));
+        addTo(_pendingLp, provider, liquidity);
+        addTo(_pendingLpNuls, provider, nuls_amount);
+        addTo(_pendingLpTokens, provider, token_amount);
+    }
+
+    @View
+    public BigInteger getLpBalance(Address owner) {
+        BigInteger balance = _balances.get(owner);
+        return balance != null ? balance : BigInteger.ZERO;
+    }
+
+    @View
+    public BigInteger getLockedLp(Address owner) {
+        BigInteger locked = _lockedLp.get(owner);
+        return locked != null ? locked : BigInteger.ZERO;
+    }
+
+    @View
+    public BigInteger getCanUsedLpAmount(Address owner) {
+        return getLpBalance(owner).subtract(getLockedLp(owner));
+    }
+
+    /**
+     * Called by the LP token whenever it locks or unlocks an owner's liquidity.
+     */
+    public void setLockedLp(Address owner, BigInteger amount) {
+        require(Msg.sender().equals(lpToken), "only lp token");
+        require(amount.compareTo(BigInteger.ZERO) >= 0, "locked amount must not be negative");
+        require(getLpBalance(owner).compareTo(amount) >= 0, "locked amount exceeds balance");
+        if (amount.compareTo(BigInteger.ZERO) > 0) {
+            _lockedLp.put(owner, amount);
+        } else {
+            _lockedLp.remove(owner);
+        }
+    }
+
+    @View
+    public int getPendingLpCount() {
+        return _pendingLp.size();
+    }
+
+    /**
+     * Reports the net liquidity change since the last sync to the LP token for up to 50 providers, one
+     * call per provider whose balance moved. Call it again while {@link #getPendingLpCount()} is non-zero,
+     * or use {@link #syncLpTokens(String[])} to pick the providers. Anyone may call it.
+     */
+    public void syncLpToken() {
+        Iterator<Map.Entry<Address, BigInteger>> entries = _pendingLp.entrySet().iterator();
+        for (int i = 0; i < MAX_SYNC_PROVIDERS && entries.hasNext(); i++) {
+            Map.Entry<Address, BigInteger> entry = entries.next();
+            entries.remove();
+            syncProvider(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * {@link #syncLpToken()} for the given providers only; providers with nothing pending are skipped.
+     */
+    public void syncLpTokens(String[] providers) {
+        require(providers.length <= MAX_SYNC_PROVIDERS, "too many providers");
+        for (int i = 0; i < providers.length; i++) {
+            Address provider = new Address(providers[i]);
+            BigInteger liquidity = _pendingLp.remove(provider);
+            if (liquidity != null) {
+                syncProvider(provider, liquidity);
+            }
+        }
+    }
+
+    private void syncProvider(Address provider, BigInteger liquidity) {
+        BigInteger nuls_amount = _pendingLpNuls.remove(provider);
+        BigInteger token_amount = _pendingLpTokens.remove(provider);
+        if (liquidity.compareTo(BigInteger.ZERO) > 0) {
+            calls.addLiquidity(provider, liquidity, nuls_amount.max(BigInteger.ZERO), token_amount.max(BigInteger.ZERO));
+        } else if (liquidity.compareTo(BigInteger.ZERO) < 0) {
+            calls.removeLiquidity(provider, liquidity.negate(), nuls_amount.negate().max(BigInteger.ZERO), token_amount.negate().max(BigInteger.ZERO));
+        }
+    }
 
     class TokenPurchase implements Event {
         private Address buyer;
@@ -655,6 +1597,130 @@ public class GoblinSwap implements Contract {
     }
 
 
+    class PoolUpdate implements Event {
+        private Address operator;
+        private int action;
+        private BigInteger nuls_in;
+        private BigInteger nuls_out;
+        private BigInteger token_in;
+        private BigInteger token_out;
+        private BigInteger nuls_reserve;
+        private BigInteger token_reserve;
+        private BigInteger lp_delta;
+
+        public PoolUpdate(Address operator, int action, BigInteger nuls_in, BigInteger nuls_out, BigInteger token_in, BigInteger token_out, BigInteger nuls_reserve, BigInteger token_reserve, BigInteger lp_delta) {
+            this.operator = operator;
+            this.action = action;
+            this.nuls_in = nuls_in;
+            this.nuls_out = nuls_out;
+            this.token_in = token_in;
+            this.token_out = token_out;
+            this.nuls_reserve = nuls_reserve;
+            this.token_reserve = token_reserve;
+            this.lp_delta = lp_delta;
+        }
+
+        public Address getOperator() {
+            return operator;
+        }
+
+        public int getAction() {
+            return action;
+        }
+
+        public BigInteger getNuls_in() {
+            return nuls_in;
+        }
+
+        public BigInteger getNuls_out() {
+            return nuls_out;
+        }
+
+        public BigInteger getToken_in() {
+            return token_in;
+        }
+
+        public BigInteger getToken_out() {
+            return token_out;
+        }
+
+        public BigInteger getNuls_reserve() {
+            return nuls_reserve;
+        }
+
+        public BigInteger getToken_reserve() {
+            return token_reserve;
+        }
+
+        public BigInteger getLp_delta() {
+            return lp_delta;
+        }
+
+        @Override
+        public String toString() {
+            return "PoolUpdate{" +
+                    "operator=" + operator +
+                    ", action=" + action +
+                    ", nuls_in=" + nuls_in +
+                    ", nuls_out=" + nuls_out +
+                    ", token_in=" + token_in +
+                    ", token_out=" + token_out +
+                    ", nuls_reserve=" + nuls_reserve +
+                    ", token_reserve=" + token_reserve +
+                    ", lp_delta=" + lp_delta +
+                    '}';
+        }
+    }
+
+
+    class AuctionOrder implements Event {
+        private Address buyer;
+        private Address recipient;
+        private int direction;
+        private BigInteger amount_in;
+        private BigInteger min_out;
+
+        public AuctionOrder(Address buyer, Address recipient, int direction, BigInteger amount_in, BigInteger min_out) {
+            this.buyer = buyer;
+            this.recipient = recipient;
+            this.direction = direction;
+            this.amount_in = amount_in;
+            this.min_out = min_out;
+        }
+
+        public Address getBuyer() {
+            return buyer;
+        }
+
+        public Address getRecipient() {
+            return recipient;
+        }
+
+        public int getDirection() {
+            return direction;
+        }
+
+        public BigInteger getAmount_in() {
+            return amount_in;
+        }
+
+        public BigInteger getMin_out() {
+            return min_out;
+        }
+
+        @Override
+        public String toString() {
+            return "AuctionOrder{" +
+                    "buyer=" + buyer +
+                    ", recipient=" + recipient +
+                    ", direction=" + direction +
+                    ", amount_in=" + amount_in +
+                    ", min_out=" + min_out +
+                    '}';
+        }
+    }
+
+
     class Snapshot implements Event {
         private Address operator;
         private BigInteger nuls_balance;
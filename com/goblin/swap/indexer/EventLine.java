@@ -0,0 +1,127 @@
+package com.goblin.swap.indexer;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reusable reader for one line of contract event JSON. Nested objects are flattened, so payload
+ * fields are looked up by their own name; arrays are not supported because no GoblinSwap event has one.
+ */
+public final class EventLine {
+    private final Map<String, String> fields = new HashMap<String, String>();
+    private final StringBuilder buffer = new StringBuilder();
+    private String text;
+    private int pos;
+
+    public void parse(String line) {
+        fields.clear();
+        text = line;
+        pos = 0;
+        skipWhitespace();
+        object();
+    }
+
+    public String get(String key) {
+        return fields.get(key);
+    }
+
+    public BigInteger big(String key) {
+        String value = fields.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("missing field " + key + " in " + text);
+        }
+        return new BigInteger(value);
+    }
+
+    private void object() {
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            String key = string();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            char c = peek();
+            if (c == '{') {
+                object();
+            } else if (c == '"') {
+                fields.put(key, string());
+            } else {
+                int start = pos;
+                while (pos < text.length() && ",}] \t".indexOf(text.charAt(pos)) < 0) {
+                    pos++;
+                }
+                String value = text.substring(start, pos);
+                fields.put(key, "null".equals(value) ? null : value);
+            }
+            skipWhitespace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect('}');
+                return;
+            }
+        }
+    }
+
+    private String string() {
+        expect('"');
+        int start = pos;
+        while (pos < text.length() && text.charAt(pos) != '"') {
+            if (text.charAt(pos) == '\\') {
+                return escapedString(start);
+            }
+            pos++;
+        }
+        String value = text.substring(start, pos);
+        expect('"');
+        return value;
+    }
+
+    private String escapedString(int start) {
+        buffer.setLength(0);
+        buffer.append(text, start, pos);
+        while (pos < text.length() && text.charAt(pos) != '"') {
+            char c = text.charAt(pos++);
+            if (c == '\\' && pos < text.length()) {
+                char escaped = text.charAt(pos++);
+                if (escaped == 'u' && pos + 4 <= text.length()) {
+                    buffer.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    pos += 4;
+                } else {
+                    buffer.append(escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped);
+                }
+            } else {
+                buffer.append(c);
+            }
+        }
+        expect('"');
+        return buffer.toString();
+    }
+
+    private char peek() {
+        if (pos >= text.length()) {
+            throw new IllegalArgumentException("unexpected end of event: " + text);
+        }
+        return text.charAt(pos);
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw new IllegalArgumentException("expected '" + c + "' at " + pos + " in " + text);
+        }
+        pos++;
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.goblin.swap.indexer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Off-heap mirror of every exchange's {@code _balances} and {@code _totalSupply}, rebuilt from
+ * {@code TransferEvent}s (full event mode) and the {@code lp_delta} of {@code PoolUpdate}s (compact
+ * mode); {@code AddLiquidity}/{@code RemoveLiquidity} carry no LP amount and pass through. Balances
+ * live in one open-addressing table of fixed 48-byte slots, linear probing on (exchange, 23-byte owner):
+ * a 4-byte exchange id (0 marks an empty slot), the owner, padding, and the balance as 128-bit two's
+ * complement, high word first. Slots are never removed, so an emptied position keeps a zero balance.
+ * <p>
+ * Every {@code checkpointBlocks} blocks the table is written to {@code lp-balances.chk} under
+ * {@code dir}, stamped with the last complete block, through a temporary file and an atomic rename.
+ * Reopening maps that file copy-on-write as the live table, so startup costs one mmap whatever the
+ * number of holders, and events from blocks the checkpoint already holds are skipped: replay the feed
+ * from {@link #resumeBlock()} and call {@link #flush()} at its end. Not thread-safe.
+ */
+public final class LpBalanceIndex implements Closeable {
+    private static final long MAGIC = 0x474f424c4c500001L;
+    private static final int HEADER = 32;
+    private static final int SLOT = 48;
+    private static final int OWNER = 4;
+    private static final int BALANCE = 32;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 25;
+    private static final long DEFAULT_CHECKPOINT_BLOCKS = 1000;
+
+    private final Path file;
+    private final Path temp;
+    private final long checkpointBlocks;
+    private final Map<String, Integer> exchangeIds = new HashMap<String, Integer>();
+    private final List<String> exchanges = new ArrayList<String>();
+    private final List<BigInteger> supplies = new ArrayList<BigInteger>();
+    private final byte[] key = new byte[NulsAddress.LENGTH + 1];
+    private final EventLine line = new EventLine();
+    private ByteBuffer slots;
+    private int capacity;
+    private long size;
+    private long block = -1;
+    private long durableBlock = -1;
+    private long checkpointedBlock = -1;
+    private long events;
+
+    public LpBalanceIndex(Path dir) throws IOException {
+        this(dir, DEFAULT_CHECKPOINT_BLOCKS);
+    }
+
+    public LpBalanceIndex(Path dir, long checkpointBlocks) throws IOException {
+        Files.createDirectories(dir);
+        this.file = dir.resolve("lp-balances.chk");
+        this.temp = dir.resolve("lp-balances.chk.tmp");
+        this.checkpointBlocks = checkpointBlocks;
+        exchanges.add(null);
+        supplies.add(BigInteger.ZERO);
+        if (Files.exists(file)) {
+            load();
+        } else {
+            capacity = MIN_CAPACITY;
+            slots = ByteBuffer.allocateDirect(capacity * SLOT);
+        }
+        block = durableBlock;
+    }
+
+    private void load() throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.PRIVATE, 0, channel.size());
+        }
+        if (buffer.getLong() != MAGIC) {
+            throw new IOException("not an LP balance checkpoint: " + file);
+        }
+        durableBlock = buffer.getLong();
+        size = buffer.getLong();
+        capacity = buffer.getInt();
+        int exchangeCount = buffer.getInt();
+        for (int i = 0; i < exchangeCount; i++) {
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            long high = buffer.getLong();
+            long low = buffer.getLong();
+            addExchange(new String(name, StandardCharsets.UTF_8), toBig(high, low));
+        }
+        slots = buffer.slice();
+        if (slots.capacity() != capacity * SLOT) {
+            throw new IOException("truncated LP balance checkpoint: " + file);
+        }
+    }
+
+    /**
+     * Holder slots in use, across all exchanges.
+     */
+    public long size() {
+        return size;
+    }
+
+    public long events() {
+        return events;
+    }
+
+    /**
+     * Last block held by the checkpoint on disk, or -1 if there is none yet.
+     */
+    public long durableBlock() {
+        return durableBlock;
+    }
+
+    /**
+     * First block a feed has to replay after a restart.
+     */
+    public long resumeBlock() {
+        return durableBlock + 1;
+    }
+
+    public List<String> exchanges() {
+        return Collections.unmodifiableList(exchanges.subList(1, exchanges.size()));
+    }
+
+    public BigInteger balanceOf(String exchange, String owner) {
+        Integer id = exchangeIds.get(exchange);
+        if (id == null) {
+            return BigInteger.ZERO;
+        }
+        NulsAddress.decode(owner, key);
+        int slot = find(id);
+        if (slot < 0) {
+            return BigInteger.ZERO;
+        }
+        int offset = slot * SLOT + BALANCE;
+        return toBig(slots.getLong(offset), slots.getLong(offset + 8));
+    }
+
+    public BigInteger totalSupply(String exchange) {
+        Integer id = exchangeIds.get(exchange);
+        return id == null ? BigInteger.ZERO : supplies.get(id);
+    }
+
+    /**
+     * Applies an LP {@code TransferEvent}; a null {@code from} mints and a null {@code to} burns.
+     */
+    public void onTransfer(String exchange, long block, String from, String to, BigInteger value) throws IOException {
+        if (!advance(block)) {
+            return;
+        }
+        int id = exchangeId(exchange);
+        if (from == null) {
+            supplies.set(id, supplies.get(id).add(value));
+        } else {
+            add(id, from, value.negate());
+        }
+        if (to == null) {
+            supplies.set(id, supplies.get(id).subtract(value));
+        } else {
+            add(id, to, value);
+        }
+    }
+
+    /**
+     * Applies the {@code lp_delta} of a {@code PoolUpdate}: minted to or burnt from {@code operator}.
+     */
+    public void onPoolUpdate(String exchange, long block, String operator, BigInteger lp_delta) throws IOException {
+        if (!advance(block) || lp_delta.signum() == 0) {
+            return;
+        }
+        int id = exchangeId(exchange);
+        supplies.set(id, supplies.get(id).add(lp_delta));
+        add(id, operator, lp_delta);
+    }
+
+    /**
+     * Ingests one event per line in the node's contract event JSON, as {@link SnapshotIndexer#ingest}
+     * does; returns how many LP events were read.
+     */
+    public long ingest(BufferedReader reader) throws IOException {
+        long count = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            if (text.isEmpty()) {
+                continue;
+            }
+            line.parse(text);
+            String event = line.get("event");
+            if ("TransferEvent".equals(event)) {
+                onTransfer(line.get("contractAddress"), Long.parseLong(line.get("blockNumber")), line.get("from"), line.get("to"), line.big("value"));
+            } else if ("PoolUpdate".equals(event)) {
+                onPoolUpdate(line.get("contractAddress"), Long.parseLong(line.get("blockNumber")), line.get("operator"), line.big("lp_delta"));
+            } else {
+                continue;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Treats the current block as complete and checkpoints; call at the end of a feed.
+     */
+    public void flush() throws IOException {
+        checkpoint(block);
+    }
+
+    /**
+     * Writes the table, exchange list and supplies stamped with {@code last_block} to a temporary file
+     * through a mapping, forces it, then renames it over the previous checkpoint.
+     */
+    private void checkpoint(long last_block) throws IOException {
+        if (last_block <= durableBlock) {
+            return;
+        }
+        int exchangeBytes = 0;
+        byte[][] names = new byte[exchanges.size()][];
+        for (int id = 1; id < exchanges.size(); id++) {
+            names[id] = exchanges.get(id).getBytes(StandardCharsets.UTF_8);
+            exchangeBytes += 2 + names[id].length + 16;
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) HEADER + exchangeBytes + (long) capacity * SLOT);
+            out.putLong(MAGIC).putLong(last_block).putLong(size).putInt(capacity).putInt(exchanges.size() - 1);
+            for (int id = 1; id < exchanges.size(); id++) {
+                BigInteger supply = supplies.get(id);
+                out.putShort((short) names[id].length).put(names[id]);
+                out.putLong(supply.shiftRight(64).longValue()).putLong(supply.longValue());
+            }
+            ByteBuffer table = slots.duplicate();
+            table.clear();
+            out.put(table);
+            out.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        durableBlock = last_block;
+    }
+
+    /**
+     * Releases the table without checkpointing, since the current block may be incomplete.
+     */
+    @Override
+    public void close() {
+        slots = null;
+    }
+
+    private boolean advance(long block) throws IOException {
+        if (block <= durableBlock) {
+            return false;
+        }
+        if (block != this.block) {
+            if (checkpointedBlock < 0) {
+                checkpointedBlock = block;
+            } else if (block - checkpointedBlock >= checkpointBlocks) {
+                checkpoint(this.block);
+                checkpointedBlock = block;
+            }
+            this.block = block;
+        }
+        events++;
+        return true;
+    }
+
+    private int exchangeId(String exchange) {
+        Integer id = exchangeIds.get(exchange);
+        return id != null ? id : addExchange(exchange, BigInteger.ZERO);
+    }
+
+    private int addExchange(String exchange, BigInteger supply) {
+        int id = exchanges.size();
+        exchanges.add(exchange);
+        supplies.add(supply);
+        exchangeIds.put(exchange, id);
+        return id;
+    }
+
+    private void add(int id, String owner, BigInteger delta) {
+        NulsAddress.decode(owner, key);
+        int slot = find(id);
+        if (slot < 0) {
+            if ((size + 1) * 4 > (long) capacity * 3) {
+                grow();
+            }
+            slot = insert(id, ~find(id));
+        }
+        int offset = slot * SLOT + BALANCE;
+        BigInteger balance = toBig(slots.getLong(offset), slots.getLong(offset + 8)).add(delta);
+        if (balance.bitLength() > 127) {
+            throw new ArithmeticException("balance does not fit in 128 bits: " + balance);
+        }
+        slots.putLong(offset, balance.shiftRight(64).longValue());
+        slots.putLong(offset + 8, balance.longValue());
+    }
+
+    /**
+     * Slot of ({@code id}, {@link #key}), or the bitwise complement of the empty slot that ends its probe.
+     */
+    private int find(int id) {
+        int mask = capacity - 1;
+        for (int slot = hash(id, key) & mask; ; slot = (slot + 1) & mask) {
+            int offset = slot * SLOT;
+            int slotId = slots.getInt(offset);
+            if (slotId == 0) {
+                return ~slot;
+            }
+            if (slotId == id && sameOwner(offset)) {
+                return slot;
+            }
+        }
+    }
+
+    private boolean sameOwner(int offset) {
+        for (int i = 0; i < NulsAddress.LENGTH; i++) {
+            if (slots.get(offset + OWNER + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int insert(int id, int slot) {
+        int offset = slot * SLOT;
+        slots.putInt(offset, id);
+        for (int i = 0; i < NulsAddress.LENGTH; i++) {
+            slots.put(offset + OWNER + i, key[i]);
+        }
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("LP balance index full at " + size + " holders");
+        }
+        ByteBuffer old = slots;
+        int oldCapacity = capacity;
+        capacity *= 2;
+        slots = ByteBuffer.allocateDirect(capacity * SLOT);
+        byte[] owner = new byte[NulsAddress.LENGTH];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldCapacity; i++) {
+            int offset = i * SLOT;
+            int id = old.getInt(offset);
+            if (id == 0) {
+                continue;
+            }
+            for (int j = 0; j < owner.length; j++) {
+                owner[j] = old.get(offset + OWNER + j);
+            }
+            int slot = hash(id, owner) & mask;
+            while (slots.getInt(slot * SLOT) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            ByteBuffer entry = old.duplicate();
+            entry.limit(offset + SLOT).position(offset);
+            slots.position(slot * SLOT);
+            slots.put(entry);
+        }
+        slots.clear();
+    }
+
+    private static int hash(int id, byte[] owner) {
+        long hash = 0xcbf29ce484222325L ^ id;
+        for (int i = 0; i < NulsAddress.LENGTH; i++) {
+            hash = (hash ^ (owner[i] & 0xff)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        return (int) (hash ^ (hash >>> 33));
+    }
+
+    private static BigInteger toBig(long high, long low) {
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return BigInteger.valueOf(low);
+        }
+        return BigInteger.valueOf(high).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(low)));
+    }
+}
@@ -0,0 +1,101 @@
+package com.goblin.swap.indexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed-width column backed by a memory-mapped file that is remapped at twice the size whenever an
+ * append runs past the end. Wide values are stored as 128-bit two's complement, high word first.
+ */
+final class MappedColumn implements Closeable {
+    static final int LONG = 8;
+    static final int WIDE = 16;
+
+    private static final long MAX_BYTES = Integer.MAX_VALUE;
+    private static final double TWO_64 = 18446744073709551616.0;
+
+    private final FileChannel channel;
+    private final int width;
+    private MappedByteBuffer buffer;
+    private long capacity;
+
+    MappedColumn(Path file, int width, long rows) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.width = width;
+        map(Math.max(rows, Math.max(1024, channel.size() / width)));
+    }
+
+    private void map(long rows) throws IOException {
+        long bytes = rows * width;
+        if (bytes > MAX_BYTES) {
+            throw new IOException("column full at " + capacity + " rows");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        capacity = rows;
+    }
+
+    void ensure(long rows) throws IOException {
+        if (rows > capacity) {
+            map(Math.min(Math.max(rows, capacity * 2), MAX_BYTES / width));
+        }
+    }
+
+    long getLong(long row) {
+        return buffer.getLong((int) (row * width));
+    }
+
+    void putLong(long row, long value) {
+        buffer.putLong((int) (row * width), value);
+    }
+
+    BigInteger getWide(long row) {
+        int offset = (int) (row * width);
+        long high = buffer.getLong(offset);
+        long low = buffer.getLong(offset + 8);
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return BigInteger.valueOf(low);
+        }
+        return BigInteger.valueOf(high).shiftLeft(64).or(new BigInteger(1, toBytes(low)));
+    }
+
+    double getWideAsDouble(long row) {
+        int offset = (int) (row * width);
+        long high = buffer.getLong(offset);
+        long low = buffer.getLong(offset + 8);
+        double unsignedLow = low >= 0 ? low : (double) (low >>> 1) * 2.0 + (low & 1);
+        return high * TWO_64 + unsignedLow;
+    }
+
+    void putWide(long row, BigInteger value) {
+        if (value.bitLength() > 127) {
+            throw new ArithmeticException("value does not fit in 128 bits: " + value);
+        }
+        int offset = (int) (row * width);
+        buffer.putLong(offset, value.shiftRight(64).longValue());
+        buffer.putLong(offset + 8, value.longValue());
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private static byte[] toBytes(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,111 @@
+package com.goblin.swap.indexer;
+
+import java.util.Arrays;
+
+/**
+ * Converts between NULS address strings and their 23 raw bytes (chain id, address type, hash160). The
+ * string is a prefix such as {@code NULS} or {@code tNULS}, one lowercase letter giving the prefix length,
+ * then Base58 of the raw bytes followed by their XOR checksum byte.
+ */
+public final class NulsAddress {
+    public static final int LENGTH = 23;
+
+    private static final char[] ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz".toCharArray();
+    private static final int[] INDEXES = new int[128];
+
+    static {
+        Arrays.fill(INDEXES, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            INDEXES[ALPHABET[i]] = i;
+        }
+    }
+
+    private NulsAddress() {
+    }
+
+    /**
+     * Decodes {@code address} into the first {@link #LENGTH} bytes of {@code out}, which must hold
+     * {@code LENGTH + 1} bytes.
+     */
+    public static void decode(String address, byte[] out) {
+        // the length letter is the first one that names its own position: 'd' after NULS, 'e' after tNULS
+        int start = 1;
+        while (start < address.length() && address.charAt(start) != (char) ('a' + start - 1)) {
+            start++;
+        }
+        if (start >= address.length()) {
+            throw new IllegalArgumentException("not a NULS address: " + address);
+        }
+        Arrays.fill(out, 0, LENGTH + 1, (byte) 0);
+        for (int i = start + 1; i < address.length(); i++) {
+            char c = address.charAt(i);
+            int carry = c < 128 ? INDEXES[c] : -1;
+            if (carry < 0) {
+                throw new IllegalArgumentException("not a NULS address: " + address);
+            }
+            for (int j = LENGTH; j >= 0; j--) {
+                carry += (out[j] & 0xff) * 58;
+                out[j] = (byte) carry;
+                carry >>>= 8;
+            }
+            if (carry != 0) {
+                throw new IllegalArgumentException("not a NULS address: " + address);
+            }
+        }
+        if (xor(out) != out[LENGTH]) {
+            throw new IllegalArgumentException("bad address checksum: " + address);
+        }
+    }
+
+    public static byte[] decode(String address) {
+        byte[] out = new byte[LENGTH + 1];
+        decode(address, out);
+        byte[] bytes = new byte[LENGTH];
+        System.arraycopy(out, 0, bytes, 0, LENGTH);
+        return bytes;
+    }
+
+    public static String encode(String prefix, byte[] bytes) {
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("address must be " + LENGTH + " bytes");
+        }
+        byte[] number = new byte[LENGTH + 1];
+        System.arraycopy(bytes, 0, number, 0, LENGTH);
+        number[LENGTH] = xor(number);
+        int zeros = 0;
+        while (zeros < number.length && number[zeros] == 0) {
+            zeros++;
+        }
+        char[] digits = new char[number.length * 2];
+        int length = 0;
+        for (int start = zeros; start < number.length; ) {
+            int remainder = 0;
+            for (int i = start; i < number.length; i++) {
+                int value = (remainder << 8) | (number[i] & 0xff);
+                number[i] = (byte) (value / 58);
+                remainder = value % 58;
+            }
+            digits[length++] = ALPHABET[remainder];
+            while (start < number.length && number[start] == 0) {
+                start++;
+            }
+        }
+        StringBuilder builder = new StringBuilder(prefix.length() + 1 + zeros + length);
+        builder.append(prefix).append((char) ('a' + prefix.length() - 1));
+        for (int i = 0; i < zeros; i++) {
+            builder.append(ALPHABET[0]);
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            builder.append(digits[i]);
+        }
+        return builder.toString();
+    }
+
+    private static byte xor(byte[] bytes) {
+        byte xor = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            xor ^= bytes[i];
+        }
+        return xor;
+    }
+}
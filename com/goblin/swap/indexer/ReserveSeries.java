@@ -0,0 +1,251 @@
+package com.goblin.swap.indexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only reserve history of one exchange, one row per {@code Snapshot}, stored as memory-mapped
+ * columns: block, timestamp, nuls_balance, token_balance and the NULS volume of the trade behind the
+ * row. {@link #commit(long)} marks a block complete and {@link #checkpoint()} makes every committed row
+ * durable; rows after the last checkpoint are dropped on reopen, so a restart resumes from
+ * {@link #lastBlock()} + 1. Prices are NULS per token.
+ */
+public final class ReserveSeries implements Closeable {
+    private final FileChannel meta;
+    private final MappedColumn blocks;
+    private final MappedColumn timestamps;
+    private final MappedColumn nulsBalances;
+    private final MappedColumn tokenBalances;
+    private final MappedColumn volumes;
+    private final ByteBuffer metaBuffer = ByteBuffer.allocate(16);
+    private long size;
+    private long committedSize;
+    private long lastBlock;
+    private long durableBlock;
+
+    private ReserveSeries(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        meta = FileChannel.open(dir.resolve("meta"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (meta.size() >= 16) {
+            meta.read(metaBuffer, 0);
+            metaBuffer.flip();
+            size = metaBuffer.getLong();
+            lastBlock = metaBuffer.getLong();
+        } else {
+            size = 0;
+            lastBlock = -1;
+        }
+        committedSize = size;
+        durableBlock = lastBlock;
+        blocks = new MappedColumn(dir.resolve("block.col"), MappedColumn.LONG, size);
+        timestamps = new MappedColumn(dir.resolve("timestamp.col"), MappedColumn.LONG, size);
+        nulsBalances = new MappedColumn(dir.resolve("nuls_balance.col"), MappedColumn.WIDE, size);
+        tokenBalances = new MappedColumn(dir.resolve("token_balance.col"), MappedColumn.WIDE, size);
+        volumes = new MappedColumn(dir.resolve("volume.col"), MappedColumn.WIDE, size);
+    }
+
+    public static ReserveSeries open(Path dir) throws IOException {
+        return new ReserveSeries(dir);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Last block whose events are all in the series, or -1 for an empty series.
+     */
+    public long lastBlock() {
+        return lastBlock;
+    }
+
+    public void append(long block, long timestamp, BigInteger nuls_balance, BigInteger token_balance, BigInteger volume) throws IOException {
+        long row = size;
+        blocks.ensure(row + 1);
+        timestamps.ensure(row + 1);
+        nulsBalances.ensure(row + 1);
+        tokenBalances.ensure(row + 1);
+        volumes.ensure(row + 1);
+        blocks.putLong(row, block);
+        timestamps.putLong(row, timestamp);
+        nulsBalances.putWide(row, nuls_balance);
+        tokenBalances.putWide(row, token_balance);
+        volumes.putWide(row, volume);
+        size = row + 1;
+    }
+
+    /**
+     * Marks every row appended so far, and {@code block}, as complete.
+     */
+    public void commit(long block) {
+        committedSize = size;
+        lastBlock = block;
+    }
+
+    /**
+     * Flushes the columns, then records the committed row count and last block in the meta file.
+     */
+    public void checkpoint() throws IOException {
+        if (durableBlock == lastBlock) {
+            return;
+        }
+        blocks.force();
+        timestamps.force();
+        nulsBalances.force();
+        tokenBalances.force();
+        volumes.force();
+        metaBuffer.clear();
+        metaBuffer.putLong(committedSize).putLong(lastBlock).flip();
+        meta.write(metaBuffer, 0);
+        meta.force(true);
+        durableBlock = lastBlock;
+    }
+
+    public long block(long row) {
+        return blocks.getLong(row);
+    }
+
+    public long timestamp(long row) {
+        return timestamps.getLong(row);
+    }
+
+    public BigInteger nulsBalance(long row) {
+        return nulsBalances.getWide(row);
+    }
+
+    public BigInteger tokenBalance(long row) {
+        return tokenBalances.getWide(row);
+    }
+
+    public BigInteger volume(long row) {
+        return volumes.getWide(row);
+    }
+
+    public double price(long row) {
+        return nulsBalances.getWideAsDouble(row) / tokenBalances.getWideAsDouble(row);
+    }
+
+    /**
+     * First row with a timestamp at or after {@code timestamp}, or {@link #size()} if there is none.
+     */
+    public long lowerBound(long timestamp) {
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestamps.getLong(mid) < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * OHLC candles of {@code interval} seconds over [{@code from}, {@code to}); buckets without rows
+     * are skipped.
+     */
+    public List<Candle> candles(long from, long to, long interval) {
+        List<Candle> candles = new ArrayList<Candle>();
+        Candle candle = null;
+        for (long row = lowerBound(from); row < size; row++) {
+            long timestamp = timestamps.getLong(row);
+            if (timestamp >= to) {
+                break;
+            }
+            long start = from + (timestamp - from) / interval * interval;
+            double price = price(row);
+            if (candle == null || candle.start != start) {
+                candle = new Candle(start, price);
+                candles.add(candle);
+            }
+            candle.add(price, volumes.getWide(row));
+        }
+        return candles;
+    }
+
+    /**
+     * Time-weighted average price over [{@code from}, {@code to}), each row's price holding until the
+     * next row; NaN when no row is at or before {@code to}.
+     */
+    public double twap(long from, long to) {
+        if (from >= to) {
+            return Double.NaN;
+        }
+        long row = lowerBound(from);
+        if (row > 0 && (row == size || timestamps.getLong(row) > from)) {
+            row--;
+        }
+        if (row >= size || timestamps.getLong(row) >= to) {
+            return Double.NaN;
+        }
+        double weighted = 0;
+        long start = Math.max(from, timestamps.getLong(row));
+        long cursor = start;
+        for (; row < size && cursor < to; row++) {
+            long next = row + 1 < size ? Math.min(to, Math.max(cursor, timestamps.getLong(row + 1))) : to;
+            weighted += price(row) * (next - cursor);
+            cursor = next;
+        }
+        return weighted / (cursor - start);
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpoint();
+        blocks.close();
+        timestamps.close();
+        nulsBalances.close();
+        tokenBalances.close();
+        volumes.close();
+        meta.close();
+    }
+
+    public static final class Candle {
+        public final long start;
+        public final double open;
+        public double high;
+        public double low;
+        public double close;
+        public BigInteger volume = BigInteger.ZERO;
+        public int trades;
+
+        Candle(long start, double open) {
+            this.start = start;
+            this.open = open;
+            this.high = open;
+            this.low = open;
+            this.close = open;
+        }
+
+        void add(double price, BigInteger tradeVolume) {
+            high = Math.max(high, price);
+            low = Math.min(low, price);
+            close = price;
+            volume = volume.add(tradeVolume);
+            trades++;
+        }
+
+        @Override
+        public String toString() {
+            return "Candle{" +
+                    "start=" + start +
+                    ", open=" + open +
+                    ", high=" + high +
+                    ", low=" + low +
+                    ", close=" + close +
+                    ", volume=" + volume +
+                    ", trades=" + trades +
+                    '}';
+        }
+    }
+}
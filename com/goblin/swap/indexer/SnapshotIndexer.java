@@ -0,0 +1,195 @@
+package com.goblin.swap.indexer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams GoblinSwap events into one {@link ReserveSeries} per exchange under {@code root}. The NULS side
+ * of the {@code TokenPurchase} and {@code NulsPurchase} events before a {@code Snapshot} is its volume
+ * (batch swaps and auction settlements emit several); a {@code PoolUpdate} (compact mode) is a complete
+ * row on its own. Field names are those of the event classes in {@code GoblinSwap}. Each series is
+ * committed when its exchange moves to a new block and all of them are checkpointed every
+ * {@code checkpointBlocks} blocks of feed progress; events from blocks a series already holds are
+ * skipped, so a feed can be replayed from any earlier block.
+ */
+public class SnapshotIndexer implements Closeable {
+    private static final int POOL_UPDATE_ADD_LIQUIDITY = 2;
+    private static final int POOL_UPDATE_REMOVE_LIQUIDITY = 3;
+    private static final int POOL_UPDATE_ZAP_IN = 7;
+    private static final int POOL_UPDATE_ZAP_OUT = 8;
+    private static final long DEFAULT_CHECKPOINT_BLOCKS = 1000;
+
+    private final Path root;
+    private final long checkpointBlocks;
+    private final Map<String, Pool> pools = new HashMap<String, Pool>();
+    private final EventLine line = new EventLine();
+    private long events;
+    private long checkpointedBlock = -1;
+
+    public SnapshotIndexer(Path root) {
+        this(root, DEFAULT_CHECKPOINT_BLOCKS);
+    }
+
+    public SnapshotIndexer(Path root, long checkpointBlocks) {
+        this.root = root;
+        this.checkpointBlocks = checkpointBlocks;
+    }
+
+    public ReserveSeries series(String exchange) throws IOException {
+        return pool(exchange).series;
+    }
+
+    /**
+     * Lowest block every exchange seen so far still needs; feeds can resume from here.
+     */
+    public long resumeBlock() {
+        long block = Long.MAX_VALUE;
+        for (Pool pool : pools.values()) {
+            block = Math.min(block, pool.series.lastBlock() + 1);
+        }
+        return block == Long.MAX_VALUE ? 0 : block;
+    }
+
+    public long events() {
+        return events;
+    }
+
+    public void onTokenPurchase(String exchange, long block, long timestamp, BigInteger nuls_sold, BigInteger tokens_bought) throws IOException {
+        Pool pool = advance(exchange, block);
+        if (pool != null) {
+            pool.pendingVolume = pool.pendingVolume.add(nuls_sold);
+        }
+    }
+
+    public void onNulsPurchase(String exchange, long block, long timestamp, BigInteger tokens_sold, BigInteger nuls_bought) throws IOException {
+        Pool pool = advance(exchange, block);
+        if (pool != null) {
+            pool.pendingVolume = pool.pendingVolume.add(nuls_bought);
+        }
+    }
+
+    public void onSnapshot(String exchange, long block, long timestamp, BigInteger nuls_balance, BigInteger token_balance) throws IOException {
+        Pool pool = advance(exchange, block);
+        if (pool != null) {
+            pool.series.append(block, timestamp, nuls_balance, token_balance, pool.pendingVolume);
+            pool.pendingVolume = BigInteger.ZERO;
+        }
+    }
+
+    public void onPoolUpdate(String exchange, long block, long timestamp, int action, BigInteger nuls_in, BigInteger nuls_out, BigInteger nuls_reserve, BigInteger token_reserve) throws IOException {
+        Pool pool = advance(exchange, block);
+        if (pool != null) {
+            boolean liquidity = action == POOL_UPDATE_ADD_LIQUIDITY || action == POOL_UPDATE_REMOVE_LIQUIDITY
+                    || action == POOL_UPDATE_ZAP_IN || action == POOL_UPDATE_ZAP_OUT;
+            BigInteger volume = liquidity ? BigInteger.ZERO : nuls_in.add(nuls_out);
+            pool.series.append(block, timestamp, nuls_reserve, token_reserve, volume);
+        }
+    }
+
+    /**
+     * Ingests one event per line in the node's contract event JSON, e.g.
+     * {@code {"contractAddress":"...","blockNumber":12,"timestamp":1600000000,"event":"Snapshot",
+     * "payload":{"operator":"...","nuls_balance":"1","token_balance":"2"}}}. Unknown events are skipped.
+     */
+    public long ingest(BufferedReader reader) throws IOException {
+        long count = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            if (text.isEmpty()) {
+                continue;
+            }
+            line.parse(text);
+            String exchange = line.get("contractAddress");
+            long block = Long.parseLong(line.get("blockNumber"));
+            String timestampText = line.get("timestamp");
+            long timestamp = timestampText == null ? 0 : Long.parseLong(timestampText);
+            String event = line.get("event");
+            if ("Snapshot".equals(event)) {
+                onSnapshot(exchange, block, timestamp, line.big("nuls_balance"), line.big("token_balance"));
+            } else if ("TokenPurchase".equals(event)) {
+                onTokenPurchase(exchange, block, timestamp, line.big("nuls_sold"), line.big("tokens_bought"));
+            } else if ("NulsPurchase".equals(event)) {
+                onNulsPurchase(exchange, block, timestamp, line.big("tokens_sold"), line.big("nuls_bought"));
+            } else if ("PoolUpdate".equals(event)) {
+                onPoolUpdate(exchange, block, timestamp, Integer.parseInt(line.get("action")), line.big("nuls_in"), line.big("nuls_out"), line.big("nuls_reserve"), line.big("token_reserve"));
+            } else {
+                continue;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Commits and checkpoints every series up to the block it is currently on; call at the end of a feed.
+     */
+    public void flush() throws IOException {
+        for (Pool pool : pools.values()) {
+            if (pool.block > pool.series.lastBlock()) {
+                pool.series.commit(pool.block);
+            }
+        }
+        checkpoint();
+    }
+
+    private void checkpoint() throws IOException {
+        for (Pool pool : pools.values()) {
+            pool.series.checkpoint();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Pool pool : pools.values()) {
+            pool.series.close();
+        }
+        pools.clear();
+    }
+
+    private Pool advance(String exchange, long block) throws IOException {
+        Pool pool = pool(exchange);
+        if (block <= pool.series.lastBlock()) {
+            return null;
+        }
+        if (block != pool.block) {
+            if (pool.block > pool.series.lastBlock()) {
+                pool.series.commit(pool.block);
+            }
+            pool.block = block;
+            pool.pendingVolume = BigInteger.ZERO;
+            if (checkpointedBlock < 0) {
+                checkpointedBlock = block;
+            } else if (block - checkpointedBlock >= checkpointBlocks) {
+                checkpoint();
+                checkpointedBlock = block;
+            }
+        }
+        events++;
+        return pool;
+    }
+
+    private Pool pool(String exchange) throws IOException {
+        Pool pool = pools.get(exchange);
+        if (pool == null) {
+            pool = new Pool(ReserveSeries.open(root.resolve(exchange)));
+            pools.put(exchange, pool);
+        }
+        return pool;
+    }
+
+    private static final class Pool {
+        final ReserveSeries series;
+        long block;
+        BigInteger pendingVolume = BigInteger.ZERO;
+
+        Pool(ReserveSeries series) {
+            this.series = series;
+            this.block = series.lastBlock();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.goblin.swap.liquidity;
+
+import io.nuls.contract.sdk.Address;
+import io.nuls.contract.sdk.Block;
+import io.nuls.contract.sdk.Contract;
+import io.nuls.contract.sdk.Event;
+import io.nuls.contract.sdk.Msg;
+import io.nuls.contract.sdk.annotation.JSONSerializable;
+import io.nuls.contract.sdk.annotation.Payable;
+import io.nuls.contract.sdk.annotation.View;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.nuls.contract.sdk.Utils.emit;
+import static io.nuls.contract.sdk.Utils.require;
+
+/**
+ * Holds LP positions in many GoblinSwap exchanges for its owner and moves each one to a target liquidity
+ * in a single transaction. The positions are held by this contract itself, not by the owner: only
+ * liquidity added through {@link #rebalance} is managed here. Exchanges are checked against the factory
+ * the first time they are used and their tokens are remembered, so later rebalances make no lookups.
+ */
+public class GoblinLiquidityManager implements Contract {
+    private static final int MAX_EXCHANGES = 64;
+
+    private Address factory;
+    private Address owner;
+    private Map<Address, Address> tokens = new HashMap<Address, Address>();
+
+    public GoblinLiquidityManager(Address factory) {
+        this.factory = factory;
+        this.owner = Msg.sender();
+    }
+
+    @View
+    public Address getFactory() {
+        return factory;
+    }
+
+    @View
+    public Address getOwner() {
+        return owner;
+    }
+
+    @View
+    public Address getToken(Address exchange) {
+        return tokens.get(exchange);
+    }
+
+    /**
+     * Receives the NULS paid out by {@code removeLiquidity}.
+     */
+    @Payable
+    public void _payable() {
+    }
+
+    /**
+     * Moves the liquidity this contract holds in each of {@code exchanges} to the matching
+     * {@code target_liquidity}. Every decrease runs first; its NULS funds the increases together with
+     * {@code Msg.value()}, the tokens it returns go to the owner, and the tokens an increase needs are
+     * pulled from the owner, who must have approved this contract. A decrease passes {@code min_nuls} and
+     * {@code min_tokens} to {@code removeLiquidity} and an increase passes {@code max_tokens} to
+     * {@code addLiquidity}, so the caller's limits, quoted off-chain, bound what a sandwich can take; the
+     * entries for the other direction are ignored. A due batch auction is settled before the reserves are
+     * read, and what each call actually pays and pulls is measured from this contract's balances rather
+     * than derived from those reserves. Unused NULS and tokens are returned and one result per exchange is
+     * returned: the liquidity held afterwards and the signed NULS and token amounts moved.
+     */
+    @Payable
+    @JSONSerializable
+    public List<Map<String, Object>> rebalance(String[] exchanges, BigInteger[] target_liquidity, BigInteger[] min_nuls,
+                                               BigInteger[] min_tokens, BigInteger[] max_tokens, BigInteger deadline) {
+        require(Msg.sender().equals(owner), "only owner");
+        require(deadline.compareTo(BigInteger.valueOf(Block.timestamp())) > 0, "illegal input parameters");
+        require(exchanges != null && target_liquidity != null && exchanges.length == target_liquidity.length
+                && exchanges.length > 0 && exchanges.length <= MAX_EXCHANGES, "illegal input parameters");
+        require(min_nuls != null && min_tokens != null && max_tokens != null && min_nuls.length == exchanges.length
+                && min_tokens.length == exchanges.length && max_tokens.length == exchanges.length, "illegal input parameters");
+        int count = exchanges.length;
+        Address[] exchange_addrs = new Address[count];
+        Address[] token_addrs = new Address[count];
+        for (int i = 0; i < count; i++) {
+            require(target_liquidity[i] != null && target_liquidity[i].compareTo(BigInteger.ZERO) >= 0, "illegal target liquidity");
+            exchange_addrs[i] = new Address(exchanges[i]);
+            for (int j = 0; j < i; j++) {
+                require(!exchange_addrs[i].equals(exchange_addrs[j]), "duplicate exchange");
+            }
+            token_addrs[i] = resolveToken(exchange_addrs[i]);
+        }
+
+        String self = Msg.address().toString();
+        String owner_addr = owner.toString();
+        String deadline_arg = deadline.toString();
+        BigInteger[] liquidity = new BigInteger[count];
+        BigInteger[] nuls_reserves = new BigInteger[count];
+        BigInteger[] token_reserves = new BigInteger[count];
+        BigInteger[] total_liquidity = new BigInteger[count];
+        BigInteger[] nuls_moved = new BigInteger[count];
+        BigInteger[] tokens_moved = new BigInteger[count];
+        for (int i = 0; i < count; i++) {
+            // sync settles a due batch auction, so the deposits below are priced on the reserves they meet
+            if (!"0".equals(exchange_addrs[i].callWithReturnValue("getAuctionOrderCount", null, null, null))) {
+                exchange_addrs[i].call("sync", null, null, null);
+            }
+            liquidity[i] = new BigInteger(exchange_addrs[i].callWithReturnValue("getLpBalance", null, args(self), null));
+            nuls_reserves[i] = callView(exchange_addrs[i], "getNulsReserve");
+            token_reserves[i] = callView(exchange_addrs[i], "getTokenReserve");
+            total_liquidity[i] = callView(exchange_addrs[i], "getTotalSupply");
+            nuls_moved[i] = BigInteger.ZERO;
+            tokens_moved[i] = BigInteger.ZERO;
+        }
+
+        BigInteger nuls_available = Msg.value();
+        BigInteger nuls_removed = BigInteger.ZERO;
+        for (int i = 0; i < count; i++) {
+            BigInteger amount = liquidity[i].subtract(target_liquidity[i]);
+            if (amount.compareTo(BigInteger.ZERO) <= 0) {
+                continue;
+            }
+            require(min_nuls[i] != null && min_tokens[i] != null, "illegal min amounts");
+            BigInteger nuls_before = Msg.address().balance();
+            BigInteger tokens_before = tokenBalance(token_addrs[i], self);
+            exchange_addrs[i].call("removeLiquidity", null, args(amount.toString(), min_nuls[i].toString(), min_tokens[i].toString(), deadline_arg), null);
+            BigInteger nuls_amount = Msg.address().balance().subtract(nuls_before);
+            BigInteger token_amount = tokenBalance(token_addrs[i], self).subtract(tokens_before);
+            if (token_amount.compareTo(BigInteger.ZERO) > 0) {
+                token_addrs[i].call("transfer", null, args(owner_addr, token_amount.toString()), null);
+            }
+            nuls_available = nuls_available.add(nuls_amount);
+            nuls_removed = nuls_removed.add(nuls_amount);
+            nuls_moved[i] = nuls_amount.negate();
+            tokens_moved[i] = token_amount.negate();
+            liquidity[i] = target_liquidity[i];
+        }
+
+        BigInteger nuls_added = BigInteger.ZERO;
+        for (int i = 0; i < count; i++) {
+            BigInteger amount = target_liquidity[i].subtract(liquidity[i]);
+            if (amount.compareTo(BigInteger.ZERO) <= 0) {
+                continue;
+            }
+            require(total_liquidity[i].compareTo(BigInteger.ZERO) > 0, "exchange has no liquidity");
+            // smallest deposit whose floored liquidity_minted still reaches the target
+            BigInteger nuls_amount = amount.multiply(nuls_reserves[i]).add(total_liquidity[i]).subtract(BigInteger.ONE).divide(total_liquidity[i]);
+            BigInteger token_amount = nuls_amount.multiply(token_reserves[i]).divide(nuls_reserves[i]).add(BigInteger.ONE);
+            require(max_tokens[i] != null && max_tokens[i].compareTo(token_amount) >= 0, "max tokens not meet");
+            require(nuls_available.compareTo(nuls_amount) >= 0, "not enough nuls");
+            token_addrs[i].call("transferFrom", null, args(owner_addr, self, token_amount.toString()), null);
+            token_addrs[i].call("approve", null, args(exchange_addrs[i].toString(), token_amount.toString()), null);
+            BigInteger nuls_before = Msg.address().balance();
+            BigInteger tokens_before = tokenBalance(token_addrs[i], self);
+            BigInteger minted = new BigInteger(exchange_addrs[i].callWithReturnValue("addLiquidity", null, args(amount.toString(), max_tokens[i].toString(), deadline_arg), nuls_amount));
+            BigInteger nuls_spent = nuls_before.subtract(Msg.address().balance());
+            BigInteger tokens_spent = tokens_before.subtract(tokenBalance(token_addrs[i], self));
+            if (tokens_spent.compareTo(token_amount) < 0) {
+                token_addrs[i].call("approve", null, args(exchange_addrs[i].toString(), "0"), null);
+                token_addrs[i].call("transfer", null, args(owner_addr, token_amount.subtract(tokens_spent).toString()), null);
+            }
+            nuls_available = nuls_available.subtract(nuls_spent);
+            nuls_added = nuls_added.add(nuls_spent);
+            nuls_moved[i] = nuls_spent;
+            tokens_moved[i] = tokens_spent;
+            liquidity[i] = liquidity[i].add(minted);
+        }
+        if (nuls_available.compareTo(BigInteger.ZERO) > 0) {
+            Msg.sender().transfer(nuls_available);
+        }
+
+        List<Map<String, Object>> results = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> result = new HashMap<String, Object>();
+            result.put("exchange", exchanges[i]);
+            result.put("liquidity", liquidity[i]);
+            result.put("nulsAmount", nuls_moved[i]);
+            result.put("tokenAmount", tokens_moved[i]);
+            results.add(result);
+        }
+        emit(new Rebalance(Msg.sender(), count, nuls_added, nuls_removed));
+        return results;
+    }
+
+    private Address resolveToken(Address exchange) {
+        Address token_addr = tokens.get(exchange);
+        if (token_addr == null) {
+            token_addr = new Address(exchange.callWithReturnValue("getTokenAddress", null, null, null));
+            String registered = factory.callWithReturnValue("getExchange", null, args(token_addr.toString()), null);
+            require(exchange.toString().equals(registered), "exchange not exist");
+            tokens.put(exchange, token_addr);
+        }
+        return token_addr;
+    }
+
+    private static BigInteger tokenBalance(Address token_addr, String self) {
+        return new BigInteger(token_addr.callWithReturnValue("balanceOf", null, args(self), null));
+    }
+
+    private static BigInteger callView(Address exchange, String method) {
+        return new BigInteger(exchange.callWithReturnValue(method, null, null, null));
+    }
+
+    private static String[][] args(String a) {
+        return new String[][]{{a}};
+    }
+
+    private static String[][] args(String a, String b) {
+        return new String[][]{{a}, {b}};
+    }
+
+    private static String[][] args(String a, String b, String c) {
+        return new String[][]{{a}, {b}, {c}};
+    }
+
+    private static String[][] args(String a, String b, String c, String d) {
+        return new String[][]{{a}, {b}, {c}, {d}};
+    }
+
+    class Rebalance implements Event {
+        private Address operator;
+        private int exchanges;
+        private BigInteger nuls_added;
+        private BigInteger nuls_removed;
+
+        public Rebalance(Address operator, int exchanges, BigInteger nuls_added, BigInteger nuls_removed) {
+            this.operator = operator;
+            this.exchanges = exchanges;
+            this.nuls_added = nuls_added;
+            this.nuls_removed = nuls_removed;
+        }
+
+        public Address getOperator() {
+            return operator;
+        }
+
+        public int getExchanges() {
+            return exchanges;
+        }
+
+        public BigInteger getNuls_added() {
+            return nuls_added;
+        }
+
+        public BigInteger getNuls_removed() {
+            return nuls_removed;
+        }
+
+        @Override
+        public String toString() {
+            return "Rebalance{" +
+                    "operator=" + operator +
+                    ", exchanges=" + exchanges +
+                    ", nuls_added=" + nuls_added +
+                    ", nuls_removed=" + nuls_removed +
+                    '}';
+        }
+    }
+}
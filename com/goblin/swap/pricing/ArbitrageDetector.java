@@ -0,0 +1,290 @@
+package com.goblin.swap.pricing;
+
+import com.goblin.swap.indexer.EventLine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Watches a market of GoblinSwap exchanges for profitable cycles. Assets are nodes and each exchange adds
+ * two edges weighted -log(0.997 R_out / R_in), the marginal {@code getInputPrice} rate, so a cycle whose
+ * weights sum below zero returns more than it puts in. Every exchange pairs a token with NULS, so a simple
+ * cycle is always NULS to a token on one exchange and back on another exchange of the same token; a
+ * {@code Snapshot} can therefore only create a cycle inside the subgraph of its own token. {@link #detect}
+ * runs SPFA with negative-cycle detection over the subgraphs of the tokens touched since the last call
+ * and nothing else, so its work grows with the changed pools, not with the market. Not thread-safe.
+ */
+public final class ArbitrageDetector {
+    private static final int NULS = 0;
+    private static final double FEE = (double) SwapMath.FEE_NUMERATOR / SwapMath.FEE_DENOMINATOR;
+    private static final double LOG_FEE = Math.log(FEE);
+
+    private final Map<String, Integer> nodes = new HashMap<String, Integer>();
+    private final List<String> tokens = new ArrayList<String>();
+    private final List<List<Pool>> tokenPools = new ArrayList<List<Pool>>();
+    private final Map<String, Pool> exchanges = new HashMap<String, Pool>();
+    private final Set<Integer> dirty = new LinkedHashSet<Integer>();
+    private final EventLine line = new EventLine();
+    private long relaxations;
+
+    public ArbitrageDetector() {
+        tokens.add(RouteOptimizer.NULS);
+        tokenPools.add(Collections.<Pool>emptyList());
+    }
+
+    /**
+     * Declares that {@code exchange} lists {@code token}; reserves arrive through {@link #onSnapshot}.
+     */
+    public void register(String exchange, String token) {
+        if (exchanges.containsKey(exchange)) {
+            return;
+        }
+        Integer node = nodes.get(token);
+        if (node == null) {
+            node = tokens.size();
+            nodes.put(token, node);
+            tokens.add(token);
+            tokenPools.add(new ArrayList<Pool>());
+        }
+        Pool pool = new Pool(exchange, node);
+        exchanges.put(exchange, pool);
+        tokenPools.get(node).add(pool);
+    }
+
+    public int exchangeCount() {
+        return exchanges.size();
+    }
+
+    /**
+     * Edge relaxations made by every {@link #detect} call so far.
+     */
+    public long relaxations() {
+        return relaxations;
+    }
+
+    public void onSnapshot(String exchange, BigInteger nuls_balance, BigInteger token_balance) {
+        Pool pool = exchanges.get(exchange);
+        if (pool == null) {
+            throw new IllegalArgumentException("unknown exchange " + exchange);
+        }
+        pool.update(nuls_balance.doubleValue(), token_balance.doubleValue());
+        dirty.add(pool.token);
+    }
+
+    /**
+     * Applies the reserves of every {@code Snapshot} and {@code PoolUpdate} in the node's contract event
+     * JSON, one per line, for registered exchanges; returns how many were applied.
+     */
+    public long ingest(BufferedReader reader) throws IOException {
+        long count = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            if (text.isEmpty()) {
+                continue;
+            }
+            line.parse(text);
+            String event = line.get("event");
+            String exchange = line.get("contractAddress");
+            if (!exchanges.containsKey(exchange)) {
+                continue;
+            }
+            if ("Snapshot".equals(event)) {
+                onSnapshot(exchange, line.big("nuls_balance"), line.big("token_balance"));
+            } else if ("PoolUpdate".equals(event)) {
+                onSnapshot(exchange, line.big("nuls_reserve"), line.big("token_reserve"));
+            } else {
+                continue;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Profitable cycles in the subgraphs changed since the last call, at most one per token.
+     */
+    public List<Cycle> detect() {
+        List<Cycle> cycles = new ArrayList<Cycle>();
+        for (int token : dirty) {
+            Cycle cycle = detect(token);
+            if (cycle != null) {
+                cycles.add(cycle);
+            }
+        }
+        dirty.clear();
+        return cycles;
+    }
+
+    /**
+     * Queue-based Bellman-Ford from a virtual source joined to both nodes of the token's subgraph. A
+     * shortest path with as many edges as the subgraph has nodes must repeat a node, so it runs through a
+     * negative cycle, which the parent edges then trace.
+     */
+    private Cycle detect(int token) {
+        List<Pool> pools = tokenPools.get(token);
+        if (pools.size() < 2) {
+            return null;
+        }
+        int[] region = {NULS, token};
+        double[] distance = new double[region.length];
+        int[] length = new int[region.length];
+        Edge[] parent = new Edge[region.length];
+        boolean[] queued = new boolean[region.length];
+        ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+        for (int i = 0; i < region.length; i++) {
+            queue.add(i);
+            queued[i] = true;
+        }
+        while (!queue.isEmpty()) {
+            int from = queue.poll();
+            queued[from] = false;
+            for (Pool pool : pools) {
+                Edge edge = from == 0 ? pool.buy : pool.sell;
+                if (!edge.live) {
+                    continue;
+                }
+                int to = 1 - from;
+                relaxations++;
+                if (distance[from] + edge.weight < distance[to] - 1e-12) {
+                    distance[to] = distance[from] + edge.weight;
+                    parent[to] = edge;
+                    length[to] = length[from] + 1;
+                    if (length[to] >= region.length) {
+                        return trace(parent, to);
+                    }
+                    if (!queued[to]) {
+                        queue.add(to);
+                        queued[to] = true;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private Cycle trace(Edge[] parent, int node) {
+        for (int i = 0; i < parent.length; i++) {
+            node = parent[node].from == NULS ? 0 : 1;
+        }
+        List<Edge> edges = new ArrayList<Edge>();
+        int start = node;
+        do {
+            Edge edge = parent[node];
+            edges.add(edge);
+            node = edge.from == NULS ? 0 : 1;
+        } while (node != start);
+        Collections.reverse(edges);
+        int first = 0;
+        for (int i = 0; i < edges.size(); i++) {
+            if (edges.get(i).from == NULS) {
+                first = i;
+            }
+        }
+        Collections.rotate(edges, -first);
+        return new Cycle(edges);
+    }
+
+    private final class Pool {
+        final String exchange;
+        final int token;
+        final Edge buy;
+        final Edge sell;
+
+        Pool(String exchange, int token) {
+            this.exchange = exchange;
+            this.token = token;
+            this.buy = new Edge(exchange, NULS, token);
+            this.sell = new Edge(exchange, token, NULS);
+        }
+
+        void update(double nuls_reserve, double token_reserve) {
+            buy.update(nuls_reserve, token_reserve);
+            sell.update(token_reserve, nuls_reserve);
+        }
+    }
+
+    private final class Edge {
+        final String exchange;
+        final int from;
+        final int to;
+        double inputReserve;
+        double outputReserve;
+        double weight;
+        boolean live;
+
+        Edge(String exchange, int from, int to) {
+            this.exchange = exchange;
+            this.from = from;
+            this.to = to;
+        }
+
+        void update(double input_reserve, double output_reserve) {
+            inputReserve = input_reserve;
+            outputReserve = output_reserve;
+            live = input_reserve > 0 && output_reserve > 0;
+            weight = live ? -(LOG_FEE + Math.log(output_reserve) - Math.log(input_reserve)) : 0;
+        }
+    }
+
+    /**
+     * A profitable loop starting and ending in NULS. {@code rate} is the marginal return per NULS;
+     * {@code amount} is the NULS input that maximises {@code profit} along the constant-product curves,
+     * from composing the legs into one curve A x / (B + C x) and solving its slope for 1.
+     */
+    public final class Cycle {
+        public final List<String> exchanges;
+        public final List<String> path;
+        public final double rate;
+        public final double amount;
+        public final double profit;
+
+        Cycle(List<Edge> edges) {
+            List<String> exchangeList = new ArrayList<String>();
+            List<String> pathList = new ArrayList<String>();
+            double weight = 0;
+            double a = 1;
+            double b = 1;
+            double c = 0;
+            pathList.add(tokens.get(edges.get(0).from));
+            for (Edge edge : edges) {
+                exchangeList.add(edge.exchange);
+                pathList.add(tokens.get(edge.to));
+                weight += edge.weight;
+                double leg_a = FEE * edge.outputReserve;
+                double leg_b = edge.inputReserve;
+                double leg_c = FEE;
+                double next_a = a * leg_a;
+                double next_b = b * leg_b;
+                double next_c = leg_b * c + leg_c * a;
+                a = next_a / next_b;
+                c = next_c / next_b;
+                b = 1;
+            }
+            this.exchanges = Collections.unmodifiableList(exchangeList);
+            this.path = Collections.unmodifiableList(pathList);
+            this.rate = Math.exp(-weight);
+            this.amount = c > 0 ? Math.max(0, (Math.sqrt(a * b) - b) / c) : 0;
+            this.profit = amount > 0 ? a * amount / (b + c * amount) - amount : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Cycle{" +
+                    "exchanges=" + exchanges +
+                    ", path=" + path +
+                    ", rate=" + rate +
+                    ", amount=" + amount +
+                    ", profit=" + profit +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.goblin.swap.pricing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of nanosecond latencies. Values below 32 get a bucket each; above that
+ * every power of two is split into 16 buckets, so a reported percentile is the upper edge of a bucket at
+ * most 1/16 wider than its lower edge. Recording is one atomic increment and never allocates.
+ */
+public final class LatencyHistogram {
+    private static final int LINEAR = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int SUB_BITS = 4;
+    private static final int BUCKETS = LINEAR + (63 - 5) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long nanos) {
+        counts.incrementAndGet(index(Math.max(0, nanos)));
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Smallest bucket edge at or above the {@code quantile} of the recorded values, or 0 when empty.
+     */
+    public long valueAt(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return upperEdge(i);
+            }
+        }
+        return upperEdge(BUCKETS - 1);
+    }
+
+    /**
+     * Count, p50, p99 and p999 in nanoseconds, in that order, for publishing to a metrics sink.
+     */
+    public Map<String, Long> percentiles() {
+        Map<String, Long> percentiles = new LinkedHashMap<String, Long>();
+        percentiles.put("count", count());
+        percentiles.put("p50", valueAt(0.5));
+        percentiles.put("p99", valueAt(0.99));
+        percentiles.put("p999", valueAt(0.999));
+        return percentiles;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    static int index(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return LINEAR + (exponent - 5) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long upperEdge(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int bucket = index - LINEAR;
+        int shift = bucket / SUB_BUCKETS + 5 - SUB_BITS;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram" + percentiles();
+    }
+}
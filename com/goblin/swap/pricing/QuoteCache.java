@@ -0,0 +1,125 @@
+package com.goblin.swap.pricing;
+
+import java.math.BigInteger;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Client-side quote cache for one exchange, valid for one reserve version. Callers poll
+ * {@code GoblinSwap.getReserveVersion} and pass the reserves to {@link #update} only when it moved; every
+ * quote in between is served from the cache or computed locally with {@link SwapMath}, without a call to
+ * the chain. Entries are keyed by direction, input or output side, and amount. Safe for concurrent use:
+ * an update swaps in a fresh epoch, so a quote never mixes reserves from two versions.
+ */
+public final class QuoteCache {
+    public static final int NULS_TO_TOKEN = 0;
+    public static final int TOKEN_TO_NULS = 1;
+
+    private final int capacity;
+    private volatile Epoch epoch = new Epoch(-1, BigInteger.ZERO, BigInteger.ZERO);
+
+    public QuoteCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Installs the reserves of {@code version}; returns false and keeps the cache if the version is the
+     * one already held.
+     */
+    public boolean update(long version, BigInteger nuls_reserve, BigInteger token_reserve) {
+        if (epoch.version == version) {
+            return false;
+        }
+        epoch = new Epoch(version, nuls_reserve, token_reserve);
+        return true;
+    }
+
+    public long version() {
+        return epoch.version;
+    }
+
+    /**
+     * NULS and token reserves of the version held, read together.
+     */
+    public BigInteger[] reserves() {
+        Epoch current = epoch;
+        return new BigInteger[]{current.nulsReserve, current.tokenReserve};
+    }
+
+    public int size() {
+        return epoch.quotes.size();
+    }
+
+    /**
+     * Output bought with {@code amount} of the input side of {@code direction}.
+     */
+    public BigInteger inputPrice(int direction, BigInteger amount) {
+        return quote(epoch, direction, false, amount);
+    }
+
+    /**
+     * Input needed to buy {@code amount} of the output side of {@code direction}.
+     */
+    public BigInteger outputPrice(int direction, BigInteger amount) {
+        return quote(epoch, direction, true, amount);
+    }
+
+    private BigInteger quote(Epoch current, int direction, boolean output, BigInteger amount) {
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("amount must greater than 0");
+        }
+        Key key = new Key(direction, output, amount);
+        BigInteger quote = current.quotes.get(key);
+        if (quote == null) {
+            BigInteger input_reserve = direction == NULS_TO_TOKEN ? current.nulsReserve : current.tokenReserve;
+            BigInteger output_reserve = direction == NULS_TO_TOKEN ? current.tokenReserve : current.nulsReserve;
+            quote = output
+                    ? SwapMath.getOutputPrice(amount, input_reserve, output_reserve)
+                    : SwapMath.getInputPrice(amount, input_reserve, output_reserve);
+            if (current.quotes.size() < capacity) {
+                current.quotes.putIfAbsent(key, quote);
+            }
+        }
+        return quote;
+    }
+
+    private static final class Epoch {
+        final long version;
+        final BigInteger nulsReserve;
+        final BigInteger tokenReserve;
+        final ConcurrentHashMap<Key, BigInteger> quotes = new ConcurrentHashMap<Key, BigInteger>();
+
+        Epoch(long version, BigInteger nulsReserve, BigInteger tokenReserve) {
+            this.version = version;
+            this.nulsReserve = nulsReserve;
+            this.tokenReserve = tokenReserve;
+        }
+    }
+
+    private static final class Key {
+        final int direction;
+        final boolean output;
+        final BigInteger amount;
+
+        Key(int direction, boolean output, BigInteger amount) {
+            if (direction != NULS_TO_TOKEN && direction != TOKEN_TO_NULS) {
+                throw new IllegalArgumentException("illegal direction");
+            }
+            this.direction = direction;
+            this.output = output;
+            this.amount = amount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return direction == key.direction && output == key.output && amount.equals(key.amount);
+        }
+
+        @Override
+        public int hashCode() {
+            return (amount.hashCode() * 31 + direction) * 2 + (output ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.goblin.swap.pricing;
+
+import com.goblin.swap.indexer.EventLine;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-memory mirror of many exchanges' reserves, fed by their {@code Snapshot} and {@code PoolUpdate}
+ * events, that answers the quotes of {@code GoblinSwap} and {@code GoblinRouter.getAmountsOut} without a
+ * call to the chain. Each exchange is a {@link QuoteCache} whose reserves are swapped in as one immutable
+ * epoch, so a quote reads them without a lock. The {@code submit} methods run each request on its own
+ * virtual thread (a cached pool before JDK 21) and record submit-to-answer time in {@link #latency()}.
+ */
+public final class QuoteService implements Closeable {
+    private final int cacheCapacity;
+    private final ConcurrentHashMap<String, QuoteCache> exchanges = new ConcurrentHashMap<String, QuoteCache>();
+    private final ConcurrentHashMap<String, String> tokenExchanges = new ConcurrentHashMap<String, String>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final ExecutorService executor;
+    private final EventLine line = new EventLine();
+
+    public QuoteService(int cacheCapacity) {
+        this(cacheCapacity, newRequestExecutor());
+    }
+
+    public QuoteService(int cacheCapacity, ExecutorService executor) {
+        this.cacheCapacity = cacheCapacity;
+        this.executor = executor;
+    }
+
+    /**
+     * Virtual-thread-per-task executor when the runtime has one, looked up reflectively so this class
+     * still loads on JDK 8.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "goblin-quote");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Maps {@code token} to its exchange for route quotes, as the factory's {@code getExchange} does.
+     */
+    public void register(String token, String exchange) {
+        tokenExchanges.put(token, exchange);
+    }
+
+    public int exchangeCount() {
+        return exchanges.size();
+    }
+
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    /**
+     * Installs new reserves for {@code exchange}. Events of one exchange must arrive in chain order; a
+     * repeat of the reserves already held keeps the cached quotes.
+     */
+    public void onReserves(String exchange, BigInteger nuls_reserve, BigInteger token_reserve) {
+        QuoteCache cache = exchanges.get(exchange);
+        if (cache == null) {
+            cache = new QuoteCache(cacheCapacity);
+            QuoteCache raced = exchanges.putIfAbsent(exchange, cache);
+            if (raced != null) {
+                cache = raced;
+            }
+        }
+        BigInteger[] reserves = cache.reserves();
+        if (cache.version() < 0 || !reserves[0].equals(nuls_reserve) || !reserves[1].equals(token_reserve)) {
+            cache.update(cache.version() + 1, nuls_reserve, token_reserve);
+        }
+    }
+
+    /**
+     * Reads one event per line in the node's contract event JSON, as {@code SnapshotIndexer.ingest} does,
+     * and applies the reserves of every {@code Snapshot} and {@code PoolUpdate}; returns how many were
+     * applied. Call from a single feed thread.
+     */
+    public long ingest(BufferedReader reader) throws IOException {
+        long count = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            if (text.isEmpty()) {
+                continue;
+            }
+            line.parse(text);
+            String event = line.get("event");
+            if ("Snapshot".equals(event)) {
+                onReserves(line.get("contractAddress"), line.big("nuls_balance"), line.big("token_balance"));
+            } else if ("PoolUpdate".equals(event)) {
+                onReserves(line.get("contractAddress"), line.big("nuls_reserve"), line.big("token_reserve"));
+            } else {
+                continue;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * {@code GoblinSwap.getNulsToTokenInputPrice} for {@link QuoteCache#NULS_TO_TOKEN}, or
+     * {@code getTokenToNulsInputPrice} for {@link QuoteCache#TOKEN_TO_NULS}.
+     */
+    public BigInteger inputPrice(String exchange, int direction, BigInteger amount) {
+        return cache(exchange).inputPrice(direction, amount);
+    }
+
+    public BigInteger outputPrice(String exchange, int direction, BigInteger amount) {
+        return cache(exchange).outputPrice(direction, amount);
+    }
+
+    /**
+     * {@code GoblinRouter.getAmountsOut}: the amount after each hop of a token path through NULS, with
+     * each exchange's reserves moved by the hops before it.
+     */
+    public List<BigInteger> amountsOut(BigInteger amount_in, String[] path) {
+        if (amount_in.signum() <= 0) {
+            throw new IllegalArgumentException("amount in must greater than 0");
+        }
+        if (path == null || path.length < 2) {
+            throw new IllegalArgumentException("illegal path");
+        }
+        BigInteger[][] reserves = new BigInteger[path.length][];
+        for (int i = 0; i < path.length; i++) {
+            String exchange = tokenExchanges.get(path[i]);
+            if (exchange == null) {
+                throw new IllegalArgumentException("exchange not exist");
+            }
+            reserves[i] = cache(exchange).reserves();
+        }
+        List<BigInteger> amounts = new ArrayList<BigInteger>();
+        BigInteger amount = amount_in;
+        amounts.add(amount);
+        for (int i = 0; i < path.length - 1; i++) {
+            BigInteger nuls_bought = SwapMath.getInputPrice(amount, reserves[i][1], reserves[i][0]);
+            reserves[i] = new BigInteger[]{reserves[i][0].subtract(nuls_bought), reserves[i][1].add(amount)};
+            amount = SwapMath.getInputPrice(nuls_bought, reserves[i + 1][0], reserves[i + 1][1]);
+            reserves[i + 1] = new BigInteger[]{reserves[i + 1][0].add(nuls_bought), reserves[i + 1][1].subtract(amount)};
+            amounts.add(amount);
+        }
+        return amounts;
+    }
+
+    public CompletableFuture<BigInteger> submitInputPrice(String exchange, int direction, BigInteger amount) {
+        return submit(() -> inputPrice(exchange, direction, amount));
+    }
+
+    public CompletableFuture<BigInteger> submitOutputPrice(String exchange, int direction, BigInteger amount) {
+        return submit(() -> outputPrice(exchange, direction, amount));
+    }
+
+    public CompletableFuture<List<BigInteger>> submitAmountsOut(BigInteger amount_in, String[] path) {
+        return submit(() -> amountsOut(amount_in, path));
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> request) {
+        long submitted = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        executor.execute(() -> {
+            T value;
+            try {
+                value = request.call();
+            } catch (Throwable e) {
+                latency.record(System.nanoTime() - submitted);
+                result.completeExceptionally(e);
+                return;
+            }
+            latency.record(System.nanoTime() - submitted);
+            result.complete(value);
+        });
+        return result;
+    }
+
+    private QuoteCache cache(String exchange) {
+        QuoteCache cache = exchanges.get(exchange);
+        if (cache == null || cache.version() < 0) {
+            throw new IllegalArgumentException("unknown exchange " + exchange);
+        }
+        return cache;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,369 @@
+package com.goblin.swap.pricing;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits one order across every exchange that lists its input or output token. Each GoblinSwap exchange
+ * pairs a token with NULS, so any route from token A to token B sells A on some A exchange and buys B on
+ * some B exchange; going through a third token adds a NULS round trip that only loses to fees. The
+ * output is therefore maximised in two independent stages, A into NULS and then NULS into B, each a
+ * convex allocation over disjoint pools that is solved in closed form by water-filling: with
+ * out(x) = 0.997 x R_out / (R_in + 0.997 x) every active pool ends at the same marginal rate. The real
+ * allocation is rounded to integers and decomposed into legs, one per exchange pair. The legs are then
+ * priced with the exact {@link SwapMath} curve one after another, each against the reserves the earlier
+ * ones leave, so every leg's min-out bound holds when they execute in order. Not thread-safe.
+ */
+public final class RouteOptimizer {
+    public static final String NULS = "NULS";
+
+    private static final double FEE = (double) SwapMath.FEE_NUMERATOR / SwapMath.FEE_DENOMINATOR;
+    private static final BigInteger BPS = BigInteger.valueOf(10_000);
+
+    private final Map<String, Pool> exchanges = new HashMap<String, Pool>();
+    private final Map<String, List<Pool>> tokens = new HashMap<String, List<Pool>>();
+
+    /**
+     * Sets the live reserves of {@code exchange}, which lists {@code token}.
+     */
+    public void update(String exchange, String token, BigInteger nuls_reserve, BigInteger token_reserve) {
+        Pool pool = exchanges.get(exchange);
+        if (pool == null) {
+            pool = new Pool(exchange, token);
+            exchanges.put(exchange, pool);
+            List<Pool> pools = tokens.get(token);
+            if (pools == null) {
+                pools = new ArrayList<Pool>();
+                tokens.put(token, pools);
+            }
+            pools.add(pool);
+        } else if (!pool.token.equals(token)) {
+            throw new IllegalArgumentException("exchange " + exchange + " lists " + pool.token);
+        }
+        pool.nulsReserve = nuls_reserve;
+        pool.tokenReserve = token_reserve;
+    }
+
+    public int exchangeCount() {
+        return exchanges.size();
+    }
+
+    /**
+     * Best split of {@code amount_in} of {@code token_in} into {@code token_out}; either side may be
+     * {@link #NULS}. Each leg's min-out is its quoted output less {@code slippage_bps} basis points, and the
+     * plan's output is the sum of the legs' outputs when they execute in order.
+     */
+    public Plan optimize(String token_in, String token_out, BigInteger amount_in, int slippage_bps) {
+        if (amount_in.signum() <= 0) {
+            throw new IllegalArgumentException("amount in must greater than 0");
+        }
+        if (token_in.equals(token_out)) {
+            throw new IllegalArgumentException("illegal path");
+        }
+        if (slippage_bps < 0 || slippage_bps >= 10_000) {
+            throw new IllegalArgumentException("illegal slippage");
+        }
+        List<Pool> sell = NULS.equals(token_in) ? Collections.<Pool>emptyList() : liquidPools(token_in);
+        List<Pool> buy = NULS.equals(token_out) ? Collections.<Pool>emptyList() : liquidPools(token_out);
+
+        BigInteger[] sold = new BigInteger[sell.size()];
+        BigInteger[] nuls_bought = new BigInteger[sell.size()];
+        BigInteger nuls_amount = amount_in;
+        if (!sell.isEmpty()) {
+            BigInteger[] input_reserves = new BigInteger[sell.size()];
+            BigInteger[] output_reserves = new BigInteger[sell.size()];
+            for (int i = 0; i < sell.size(); i++) {
+                input_reserves[i] = sell.get(i).tokenReserve;
+                output_reserves[i] = sell.get(i).nulsReserve;
+            }
+            split(amount_in, input_reserves, output_reserves, sold, nuls_bought);
+            nuls_amount = sum(nuls_bought);
+        }
+        BigInteger[] nuls_sold = new BigInteger[buy.size()];
+        BigInteger[] bought = new BigInteger[buy.size()];
+        BigInteger amount_out = nuls_amount;
+        if (!buy.isEmpty() && nuls_amount.signum() > 0) {
+            BigInteger[] input_reserves = new BigInteger[buy.size()];
+            BigInteger[] output_reserves = new BigInteger[buy.size()];
+            for (int j = 0; j < buy.size(); j++) {
+                input_reserves[j] = buy.get(j).nulsReserve;
+                output_reserves[j] = buy.get(j).tokenReserve;
+            }
+            split(nuls_amount, input_reserves, output_reserves, nuls_sold, bought);
+            amount_out = sum(bought);
+        } else {
+            Arrays.fill(nuls_sold, BigInteger.ZERO);
+            Arrays.fill(bought, BigInteger.ZERO);
+        }
+
+        List<Leg> routes = new ArrayList<Leg>();
+        BigInteger keep = BPS.subtract(BigInteger.valueOf(slippage_bps));
+        if (sell.isEmpty()) {
+            for (int j = 0; j < buy.size(); j++) {
+                if (nuls_sold[j].signum() > 0) {
+                    routes.add(new Leg(null, buy.get(j).exchange, nuls_sold[j], nuls_sold[j], bought[j], keep));
+                }
+            }
+        } else if (buy.isEmpty()) {
+            for (int i = 0; i < sell.size(); i++) {
+                if (sold[i].signum() > 0) {
+                    routes.add(new Leg(sell.get(i).exchange, null, sold[i], nuls_bought[i], nuls_bought[i], keep));
+                }
+            }
+        } else {
+            decompose(sell, sold, nuls_bought, buy, nuls_sold, bought, keep, routes);
+        }
+        List<Leg> legs = priceInOrder(routes, keep);
+        amount_out = BigInteger.ZERO;
+        for (Leg leg : legs) {
+            amount_out = amount_out.add(leg.amountOut);
+        }
+        return new Plan(amount_in, amount_out, amount_out.multiply(keep).divide(BPS), legs);
+    }
+
+    /**
+     * Reprices {@code routes} in order against copies of the live reserves, moving each pool as a leg
+     * trades on it; a pool shared by several legs gives the later ones its post-trade price.
+     */
+    private List<Leg> priceInOrder(List<Leg> routes, BigInteger keep) {
+        Map<String, BigInteger[]> reserves = new HashMap<String, BigInteger[]>();
+        List<Leg> legs = new ArrayList<Leg>(routes.size());
+        for (Leg route : routes) {
+            BigInteger nuls = route.amountIn;
+            if (route.exchangeIn != null) {
+                BigInteger[] pool = reserves(reserves, route.exchangeIn);
+                nuls = SwapMath.getInputPrice(route.amountIn, pool[1], pool[0]);
+                pool[0] = pool[0].subtract(nuls);
+                pool[1] = pool[1].add(route.amountIn);
+            }
+            BigInteger amount_out = nuls;
+            if (route.exchangeOut != null) {
+                BigInteger[] pool = reserves(reserves, route.exchangeOut);
+                amount_out = SwapMath.getInputPrice(nuls, pool[0], pool[1]);
+                pool[0] = pool[0].add(nuls);
+                pool[1] = pool[1].subtract(amount_out);
+            }
+            legs.add(new Leg(route.exchangeIn, route.exchangeOut, route.amountIn, nuls, amount_out, keep));
+        }
+        return legs;
+    }
+
+    // NULS and token reserve of exchange as the legs priced so far leave them
+    private BigInteger[] reserves(Map<String, BigInteger[]> reserves, String exchange) {
+        BigInteger[] pool = reserves.get(exchange);
+        if (pool == null) {
+            Pool live = exchanges.get(exchange);
+            pool = new BigInteger[]{live.nulsReserve, live.tokenReserve};
+            reserves.put(exchange, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Pairs the NULS each sell pool produces with the NULS each buy pool consumes, in order; every pair is
+     * a leg carrying its share of the sell pool's input and of the buy pool's output.
+     */
+    private static void decompose(List<Pool> sell, BigInteger[] sold, BigInteger[] nuls_bought, List<Pool> buy,
+                                  BigInteger[] nuls_sold, BigInteger[] bought, BigInteger keep, List<Leg> legs) {
+        int i = nextActive(nuls_bought, 0);
+        int j = nextActive(nuls_sold, 0);
+        BigInteger left_in = i < sold.length ? nuls_bought[i] : BigInteger.ZERO;
+        BigInteger left_out = j < bought.length ? nuls_sold[j] : BigInteger.ZERO;
+        BigInteger sold_left = i < sold.length ? sold[i] : BigInteger.ZERO;
+        BigInteger bought_left = j < bought.length ? bought[j] : BigInteger.ZERO;
+        while (i < sold.length && j < bought.length) {
+            BigInteger nuls = left_in.min(left_out);
+            boolean last_in = nuls.equals(left_in);
+            boolean last_out = nuls.equals(left_out);
+            BigInteger amount_in = last_in ? sold_left : sold[i].multiply(nuls).divide(nuls_bought[i]);
+            BigInteger amount_out = last_out ? bought_left : bought[j].multiply(nuls).divide(nuls_sold[j]);
+            if (amount_in.signum() > 0) {
+                legs.add(new Leg(sell.get(i).exchange, buy.get(j).exchange, amount_in, nuls, amount_out, keep));
+            }
+            sold_left = sold_left.subtract(amount_in);
+            bought_left = bought_left.subtract(amount_out);
+            left_in = left_in.subtract(nuls);
+            left_out = left_out.subtract(nuls);
+            if (last_in) {
+                i = nextActive(nuls_bought, i + 1);
+                if (i < sold.length) {
+                    left_in = nuls_bought[i];
+                    sold_left = sold[i];
+                }
+            }
+            if (last_out) {
+                j = nextActive(nuls_sold, j + 1);
+                if (j < bought.length) {
+                    left_out = nuls_sold[j];
+                    bought_left = bought[j];
+                }
+            }
+        }
+    }
+
+    private static int nextActive(BigInteger[] amounts, int from) {
+        while (from < amounts.length && amounts[from].signum() <= 0) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Water-filling over pools with disjoint reserves: pools enter in order of their marginal rate at
+     * zero, 0.997 R_out / R_in, while that rate beats the common rate lambda of the pools already in, and
+     * each active pool takes (sqrt(0.997 R_in R_out / lambda) - R_in) / 0.997, lambda being set by the total.
+     * The integer remainder goes to the largest allocation.
+     */
+    static void split(BigInteger amount, BigInteger[] input_reserves, BigInteger[] output_reserves, BigInteger[] inputs, BigInteger[] outputs) {
+        int n = input_reserves.length;
+        double[] roots = new double[n];
+        double[] offsets = new double[n];
+        double[] rates = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            double input_reserve = input_reserves[i].doubleValue();
+            double output_reserve = output_reserves[i].doubleValue();
+            roots[i] = Math.sqrt(input_reserve * output_reserve * FEE) / FEE;
+            offsets[i] = input_reserve / FEE;
+            rates[i] = FEE * output_reserve / input_reserve;
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(rates[b], rates[a]));
+        double total = amount.doubleValue();
+        double root_sum = 0;
+        double offset_sum = 0;
+        double inverse_root_lambda = 0;
+        int active = 0;
+        for (; active < n; active++) {
+            int k = order[active];
+            if (active > 0 && rates[k] * inverse_root_lambda * inverse_root_lambda <= 1) {
+                break;
+            }
+            root_sum += roots[k];
+            offset_sum += offsets[k];
+            inverse_root_lambda = (total + offset_sum) / root_sum;
+        }
+        BigInteger allocated = BigInteger.ZERO;
+        int largest = order[0];
+        Arrays.fill(inputs, BigInteger.ZERO);
+        for (int a = 0; a < active; a++) {
+            int k = order[a];
+            double x = roots[k] * inverse_root_lambda - offsets[k];
+            inputs[k] = x > 0 ? new BigDecimal(x).toBigInteger() : BigInteger.ZERO;
+            allocated = allocated.add(inputs[k]);
+            if (inputs[k].compareTo(inputs[largest]) > 0) {
+                largest = k;
+            }
+        }
+        inputs[largest] = inputs[largest].add(amount.subtract(allocated));
+        if (inputs[largest].signum() < 0) {
+            Arrays.fill(inputs, BigInteger.ZERO);
+            inputs[order[0]] = amount;
+        }
+        for (int i = 0; i < n; i++) {
+            outputs[i] = inputs[i].signum() > 0 ? SwapMath.getInputPrice(inputs[i], input_reserves[i], output_reserves[i]) : BigInteger.ZERO;
+        }
+    }
+
+    private List<Pool> liquidPools(String token) {
+        List<Pool> pools = tokens.get(token);
+        List<Pool> liquid = new ArrayList<Pool>();
+        if (pools != null) {
+            for (Pool pool : pools) {
+                if (pool.nulsReserve.signum() > 0 && pool.tokenReserve.signum() > 0) {
+                    liquid.add(pool);
+                }
+            }
+        }
+        if (liquid.isEmpty()) {
+            throw new IllegalArgumentException("exchange not exist");
+        }
+        return liquid;
+    }
+
+    private static BigInteger sum(BigInteger[] amounts) {
+        BigInteger total = BigInteger.ZERO;
+        for (BigInteger amount : amounts) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+
+    private static final class Pool {
+        final String exchange;
+        final String token;
+        BigInteger nulsReserve = BigInteger.ZERO;
+        BigInteger tokenReserve = BigInteger.ZERO;
+
+        Pool(String exchange, String token) {
+            this.exchange = exchange;
+            this.token = token;
+        }
+    }
+
+    /**
+     * One route of a split: sell {@code amountIn} on {@code exchangeIn} and buy on {@code exchangeOut};
+     * either is null when that side is NULS. A token-to-token leg maps to
+     * {@code tokenToExchangeSwapInput} on {@code exchangeIn} with {@code exchangeOut} as the target. Legs
+     * are quoted in plan order and must be sent in that order.
+     */
+    public static final class Leg {
+        public final String exchangeIn;
+        public final String exchangeOut;
+        public final BigInteger amountIn;
+        public final BigInteger nulsAmount;
+        public final BigInteger amountOut;
+        public final BigInteger minOut;
+
+        Leg(String exchangeIn, String exchangeOut, BigInteger amountIn, BigInteger nulsAmount, BigInteger amountOut, BigInteger keep) {
+            this.exchangeIn = exchangeIn;
+            this.exchangeOut = exchangeOut;
+            this.amountIn = amountIn;
+            this.nulsAmount = nulsAmount;
+            this.amountOut = amountOut;
+            this.minOut = amountOut.multiply(keep).divide(BPS);
+        }
+
+        @Override
+        public String toString() {
+            return "Leg{" +
+                    "exchangeIn=" + exchangeIn +
+                    ", exchangeOut=" + exchangeOut +
+                    ", amountIn=" + amountIn +
+                    ", nulsAmount=" + nulsAmount +
+                    ", amountOut=" + amountOut +
+                    ", minOut=" + minOut +
+                    '}';
+        }
+    }
+
+    public static final class Plan {
+        public final BigInteger amountIn;
+        public final BigInteger amountOut;
+        public final BigInteger minOut;
+        public final List<Leg> legs;
+
+        Plan(BigInteger amountIn, BigInteger amountOut, BigInteger minOut, List<Leg> legs) {
+            this.amountIn = amountIn;
+            this.amountOut = amountOut;
+            this.minOut = minOut;
+            this.legs = Collections.unmodifiableList(legs);
+        }
+
+        @Override
+        public String toString() {
+            return "Plan{" +
+                    "amountIn=" + amountIn +
+                    ", amountOut=" + amountOut +
+                    ", minOut=" + minOut +
+                    ", legs=" + legs +
+                    '}';
+        }
+    }
+}
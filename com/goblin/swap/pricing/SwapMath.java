@@ -0,0 +1,131 @@
+package com.goblin.swap.pricing;
+
+import java.math.BigInteger;
+
+/**
+ * Constant-product pricing with the 0.3% fee, giving the same results as {@code GoblinSwap.getInputPrice}
+ * and {@code GoblinSwap.getOutputPrice}. Quotes run on {@code long} whenever every intermediate product
+ * fits in 63 bits and fall back to {@code BigInteger} otherwise, so the fast path never changes a result.
+ */
+public final class SwapMath {
+    public static final long FEE_NUMERATOR = 997;
+    public static final long FEE_DENOMINATOR = 1000;
+
+    private static final BigInteger FEE_NUMERATOR_BIG = BigInteger.valueOf(FEE_NUMERATOR);
+    private static final BigInteger FEE_DENOMINATOR_BIG = BigInteger.valueOf(FEE_DENOMINATOR);
+
+    private SwapMath() {
+    }
+
+    public static long getInputPrice(long input_amount, long input_reserve, long output_reserve) {
+        long output_amount = getInputPriceOrOverflow(input_amount, input_reserve, output_reserve);
+        if (output_amount >= 0) {
+            return output_amount;
+        }
+        return getInputPriceExact(BigInteger.valueOf(input_amount), BigInteger.valueOf(input_reserve), BigInteger.valueOf(output_reserve)).longValueExact();
+    }
+
+    public static long getOutputPrice(long output_amount, long input_reserve, long output_reserve) {
+        long input_amount = getOutputPriceOrOverflow(output_amount, input_reserve, output_reserve);
+        if (input_amount >= 0) {
+            return input_amount;
+        }
+        return getOutputPriceExact(BigInteger.valueOf(output_amount), BigInteger.valueOf(input_reserve), BigInteger.valueOf(output_reserve)).longValueExact();
+    }
+
+    public static BigInteger getInputPrice(BigInteger input_amount, BigInteger input_reserve, BigInteger output_reserve) {
+        if (fitsLong(input_amount) && fitsLong(input_reserve) && fitsLong(output_reserve)) {
+            long output_amount = getInputPriceOrOverflow(input_amount.longValue(), input_reserve.longValue(), output_reserve.longValue());
+            if (output_amount >= 0) {
+                return BigInteger.valueOf(output_amount);
+            }
+        }
+        return getInputPriceExact(input_amount, input_reserve, output_reserve);
+    }
+
+    public static BigInteger getOutputPrice(BigInteger output_amount, BigInteger input_reserve, BigInteger output_reserve) {
+        if (fitsLong(output_amount) && fitsLong(input_reserve) && fitsLong(output_reserve)) {
+            long input_amount = getOutputPriceOrOverflow(output_amount.longValue(), input_reserve.longValue(), output_reserve.longValue());
+            if (input_amount >= 0) {
+                return BigInteger.valueOf(input_amount);
+            }
+        }
+        return getOutputPriceExact(output_amount, input_reserve, output_reserve);
+    }
+
+    /**
+     * The contract's {@code getInputPrice}, evaluated on {@code BigInteger} throughout.
+     */
+    public static BigInteger getInputPriceExact(BigInteger input_amount, BigInteger input_reserve, BigInteger output_reserve) {
+        requireReserves(input_reserve.signum() > 0 && output_reserve.signum() > 0);
+        BigInteger input_amount_with_fee = input_amount.multiply(FEE_NUMERATOR_BIG);
+        BigInteger numerator = input_amount_with_fee.multiply(output_reserve);
+        BigInteger denominator = input_reserve.multiply(FEE_DENOMINATOR_BIG).add(input_amount_with_fee);
+        return numerator.divide(denominator);
+    }
+
+    /**
+     * The contract's {@code getOutputPrice}, evaluated on {@code BigInteger} throughout.
+     */
+    public static BigInteger getOutputPriceExact(BigInteger output_amount, BigInteger input_reserve, BigInteger output_reserve) {
+        requireReserves(input_reserve.signum() > 0 && output_reserve.signum() > 0);
+        BigInteger numerator = input_reserve.multiply(output_amount).multiply(FEE_DENOMINATOR_BIG);
+        BigInteger denominator = (output_reserve.subtract(output_amount)).multiply(FEE_NUMERATOR_BIG);
+        return (numerator.divide(denominator)).add(BigInteger.ONE);
+    }
+
+    /**
+     * Fast path of {@link #getInputPrice(long, long, long)}; -1 when an operand is negative or an
+     * intermediate product would not fit in 63 bits.
+     */
+    private static long getInputPriceOrOverflow(long input_amount, long input_reserve, long output_reserve) {
+        requireReserves(input_reserve > 0 && output_reserve > 0);
+        long input_amount_with_fee = multiply(input_amount, FEE_NUMERATOR);
+        long numerator = multiply(input_amount_with_fee, output_reserve);
+        long scaled_reserve = multiply(input_reserve, FEE_DENOMINATOR);
+        if (input_amount_with_fee < 0 || numerator < 0 || scaled_reserve < 0) {
+            return -1;
+        }
+        long denominator = scaled_reserve + input_amount_with_fee;
+        return denominator >= 0 ? numerator / denominator : -1;
+    }
+
+    /**
+     * Fast path of {@link #getOutputPrice(long, long, long)}; -1 when the output does not leave a positive
+     * reserve or an intermediate product would not fit in 63 bits.
+     */
+    private static long getOutputPriceOrOverflow(long output_amount, long input_reserve, long output_reserve) {
+        requireReserves(input_reserve > 0 && output_reserve > 0);
+        if (output_amount < 0 || output_amount >= output_reserve) {
+            return -1;
+        }
+        long numerator = multiply(multiply(input_reserve, output_amount), FEE_DENOMINATOR);
+        long denominator = multiply(output_reserve - output_amount, FEE_NUMERATOR);
+        if (numerator < 0 || denominator < 0) {
+            return -1;
+        }
+        return numerator / denominator + 1;
+    }
+
+    /**
+     * Product of two non-negative operands, or -1 when either is negative or the product does not fit
+     * in 63 bits.
+     */
+    private static long multiply(long a, long b) {
+        if (a < 0 || b < 0) {
+            return -1;
+        }
+        long low = a * b;
+        return Math.multiplyHigh(a, b) == 0 && low >= 0 ? low : -1;
+    }
+
+    private static boolean fitsLong(BigInteger value) {
+        return value.bitLength() < 64;
+    }
+
+    private static void requireReserves(boolean valid) {
+        if (!valid) {
+            throw new IllegalArgumentException("INVALID_VALUE");
+        }
+    }
+}
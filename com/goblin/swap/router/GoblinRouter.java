@@ -0,0 +1,242 @@
+package com.goblin.swap.router;
+
+import io.nuls.contract.sdk.Address;
+import io.nuls.contract.sdk.Block;
+import io.nuls.contract.sdk.Contract;
+import io.nuls.contract.sdk.Event;
+import io.nuls.contract.sdk.Msg;
+import io.nuls.contract.sdk.annotation.JSONSerializable;
+import io.nuls.contract.sdk.annotation.View;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.nuls.contract.sdk.Utils.emit;
+import static io.nuls.contract.sdk.Utils.require;
+
+public class GoblinRouter implements Contract {
+    private static final BigInteger FEE_NUMERATOR = BigInteger.valueOf(997);
+    private static final BigInteger FEE_DENOMINATOR = BigInteger.valueOf(1000);
+    private static final int MAX_BATCH_EXCHANGES = 100;
+
+    private Address factory;
+
+    public GoblinRouter(Address factory) {
+        this.factory = factory;
+    }
+
+    @View
+    public Address getFactory() {
+        return factory;
+    }
+
+    @View
+    @JSONSerializable
+    public List<BigInteger> getAmountsOut(BigInteger amount_in, String[] path) {
+        require(amount_in.compareTo(BigInteger.ZERO) > 0, "amount in must greater than 0");
+        require(path != null && path.length >= 2, "illegal path");
+        Address[] exchanges = getExchanges(path);
+        BigInteger[] nuls_reserves = new BigInteger[exchanges.length];
+        BigInteger[] token_reserves = new BigInteger[exchanges.length];
+        for (int i = 0; i < exchanges.length; i++) {
+            nuls_reserves[i] = callView(exchanges[i], "getNulsReserve");
+            token_reserves[i] = callView(exchanges[i], "getTokenReserve");
+        }
+        List<BigInteger> amounts = new ArrayList<BigInteger>();
+        BigInteger amount = amount_in;
+        amounts.add(amount);
+        for (int i = 0; i < exchanges.length - 1; i++) {
+            BigInteger nuls_bought = getInputPrice(amount, token_reserves[i], nuls_reserves[i]);
+            token_reserves[i] = token_reserves[i].add(amount);
+            nuls_reserves[i] = nuls_reserves[i].subtract(nuls_bought);
+            amount = getInputPrice(nuls_bought, nuls_reserves[i + 1], token_reserves[i + 1]);
+            nuls_reserves[i + 1] = nuls_reserves[i + 1].add(nuls_bought);
+            token_reserves[i + 1] = token_reserves[i + 1].subtract(amount);
+            amounts.add(amount);
+        }
+        return amounts;
+    }
+
+    /**
+     * {@code GoblinSwap.getReserves} of every exchange in one call: NULS reserve, token reserve, total LP
+     * supply and last update block, in the order given.
+     */
+    @View
+    @JSONSerializable
+    public List<List<BigInteger>> getReservesBatch(String[] exchanges) {
+        require(exchanges != null && exchanges.length > 0 && exchanges.length <= MAX_BATCH_EXCHANGES, "illegal exchanges");
+        List<List<BigInteger>> batch = new ArrayList<List<BigInteger>>();
+        for (int i = 0; i < exchanges.length; i++) {
+            BigInteger[] reserves = getReserves(new Address(exchanges[i]));
+            List<BigInteger> row = new ArrayList<BigInteger>();
+            for (int j = 0; j < reserves.length; j++) {
+                row.add(reserves[j]);
+            }
+            batch.add(row);
+        }
+        return batch;
+    }
+
+    private BigInteger[] getReserves(Address exchange) {
+        return new BigInteger[]{callView(exchange, "getNulsReserve"), callView(exchange, "getTokenReserve"),
+                callView(exchange, "getTotalSupply"), callView(exchange, "getReserveBlock")};
+    }
+
+    private static BigInteger callView(Address exchange, String method) {
+        return new BigInteger(exchange.callWithReturnValue(method, null, null, null));
+    }
+
+    private BigInteger getInputPrice(BigInteger input_amount, BigInteger input_reserve, BigInteger output_reserve) {
+        require(input_reserve.compareTo(BigInteger.ZERO) > 0 && output_reserve.compareTo(BigInteger.ZERO) > 0, "INVALID_VALUE");
+        BigInteger input_amount_with_fee = input_amount.multiply(FEE_NUMERATOR);
+        BigInteger numerator = input_amount_with_fee.multiply(output_reserve);
+        BigInteger denominator = input_reserve.multiply(FEE_DENOMINATOR).add(input_amount_with_fee);
+        return numerator.divide(denominator);
+    }
+
+    public BigInteger swapExactTokensForTokens(BigInteger amount_in, BigInteger min_amount_out, String[] path, Address recipient, BigInteger deadline) {
+        require(deadline.compareTo(BigInteger.valueOf(Block.timestamp())) >= 0 && amount_in.compareTo(BigInteger.ZERO) > 0 && min_amount_out.compareTo(BigInteger.ZERO) > 0, "illegal input parameters");
+        require(path != null && path.length >= 2, "illegal path");
+        require(recipient != null && !recipient.equals(Msg.address()), "illegal recipient");
+        Address[] exchanges = getExchanges(path);
+        Address token_in = new Address(path[0]);
+        Address token_out = new Address(path[path.length - 1]);
+
+        String[][] args = new String[][]{new String[]{Msg.sender().toString()}, new String[]{Msg.address().toString()}, new String[]{amount_in.toString()}};
+        token_in.call("transferFrom", null, args, null);
+
+        BigInteger amount = amount_in;
+        for (int i = 0; i < exchanges.length - 1; i++) {
+            Address hop_token = i == 0 ? token_in : new Address(path[i]);
+            Address hop_recipient = i == exchanges.length - 2 ? recipient : Msg.address();
+            String[][] args1 = new String[][]{new String[]{exchanges[i].toString()}, new String[]{amount.toString()}};
+            hop_token.call("approve", null, args1, null);
+            String[][] args2 = new String[][]{new String[]{amount.toString()}, new String[]{BigInteger.ONE.toString()}, new String[]{BigInteger.ONE.toString()}, new String[]{deadline.toString()}, new String[]{hop_recipient.toString()}, new String[]{exchanges[i + 1].toString()}};
+            amount = new BigInteger(exchanges[i].callWithReturnValue("tokenToExchangeTransferInput", null, args2, null));
+        }
+        require(amount.compareTo(min_amount_out) >= 0, "min amount out not matched");
+
+        emit(new RouterSwap(Msg.sender(), recipient, token_in, token_out, amount_in, amount));
+        return amount;
+    }
+
+    private Address[] getExchanges(String[] path) {
+        Address[] exchanges = new Address[path.length];
+        for (int i = 0; i < path.length; i++) {
+            String[][] args = new String[][]{new String[]{path[i]}};
+            String exchange = factory.callWithReturnValue("getExchange", null, args, null);
+            require(exchange != null && exchange.length() > 0, "exchange not exist");
+            exchanges[i] = new Address(exchange);
+            for (int j = 0; j < i; j++) {
+                require(!exchanges[i].equals(exchanges[j]), "illegal path");
+            }
+        }
+        return exchanges;
+    }
+
+
+    class RouterSwap implements Event {
+        private Address sender;
+        private Address recipient;
+        private Address token_in;
+        private Address token_out;
+        private BigInteger amount_in;
+        private BigInteger amount_out;
+
+        public RouterSwap(Address sender, Address recipient, Address token_in, Address token_out, BigInteger amount_in, BigInteger amount_out) {
+            this.sender = sender;
+            this.recipient = recipient;
+            this.token_in = token_in;
+            this.token_out = token_out;
+            this.amount_in = amount_in;
+            this.amount_out = amount_out;
+        }
+
+        public Address getSender() {
+            return sender;
+        }
+
+        public void setSender(Address sender) {
+            this.sender = sender;
+        }
+
+        public Address getRecipient() {
+            return recipient;
+        }
+
+        public void setRecipient(Address recipient) {
+            this.recipient = recipient;
+        }
+
+        public Address getToken_in() {
+            return token_in;
+        }
+
+        public void setToken_in(Address token_in) {
+            this.token_in = token_in;
+        }
+
+        public Address getToken_out() {
+            return token_out;
+        }
+
+        public void setToken_out(Address token_out) {
+            this.token_out = token_out;
+        }
+
+        public BigInteger getAmount_in() {
+            return amount_in;
+        }
+
+        public void setAmount_in(BigInteger amount_in) {
+            this.amount_in = amount_in;
+        }
+
+        public BigInteger getAmount_out() {
+            return amount_out;
+        }
+
+        public void setAmount_out(BigInteger amount_out) {
+            this.amount_out = amount_out;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            RouterSwap that = (RouterSwap) o;
+
+            if (sender != null ? !sender.equals(that.sender) : that.sender != null) return false;
+            if (recipient != null ? !recipient.equals(that.recipient) : that.recipient != null) return false;
+            if (token_in != null ? !token_in.equals(that.token_in) : that.token_in != null) return false;
+            if (token_out != null ? !token_out.equals(that.token_out) : that.token_out != null) return false;
+            if (amount_in != null ? !amount_in.equals(that.amount_in) : that.amount_in != null) return false;
+            return amount_out != null ? amount_out.equals(that.amount_out) : that.amount_out == null;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = sender != null ? sender.hashCode() : 0;
+            result = 31 * result + (recipient != null ? recipient.hashCode() : 0);
+            result = 31 * result + (token_in != null ? token_in.hashCode() : 0);
+            result = 31 * result + (token_out != null ? token_out.hashCode() : 0);
+            result = 31 * result + (amount_in != null ? amount_in.hashCode() : 0);
+            result = 31 * result + (amount_out != null ? amount_out.hashCode() : 0);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "RouterSwap{" +
+                    "sender=" + sender +
+                    ", recipient=" + recipient +
+                    ", token_in=" + token_in +
+                    ", token_out=" + token_out +
+                    ", amount_in=" + amount_in +
+                    ", amount_out=" + amount_out +
+                    '}';
+        }
+    }
+}
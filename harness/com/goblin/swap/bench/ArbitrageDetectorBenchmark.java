@@ -0,0 +1,63 @@
+package com.goblin.swap.bench;
+
+import com.goblin.swap.pricing.ArbitrageDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One block of an {@link ArbitrageDetector}: {@code CHANGED} snapshots on random exchanges of a market
+ * with three exchanges per token, then a detection pass. The score is microseconds per block and should
+ * stay flat as {@code exchanges} grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArbitrageDetectorBenchmark {
+    private static final int CHANGED = 32;
+    private static final int EXCHANGES_PER_TOKEN = 3;
+
+    @Param({"300", "3000", "30000"})
+    public int exchanges;
+
+    private final ArbitrageDetector detector = new ArbitrageDetector();
+    private final Random random = new Random(42);
+    private String[] names;
+
+    @Setup
+    public void setup() {
+        names = new String[exchanges];
+        for (int i = 0; i < exchanges; i++) {
+            names[i] = "NULSd6HgExchange" + i;
+            detector.register(names[i], "NULSd6HgToken" + i / EXCHANGES_PER_TOKEN);
+            detector.onSnapshot(names[i], BigInteger.valueOf(1_000_000_000_000L), BigInteger.valueOf(2_000_000_000_000L));
+        }
+        detector.detect();
+    }
+
+    @Benchmark
+    public List<ArbitrageDetector.Cycle> block() {
+        for (int i = 0; i < CHANGED; i++) {
+            long drift = random.nextInt(20_000_000) * 1000L;
+            detector.onSnapshot(names[random.nextInt(exchanges)], BigInteger.valueOf(1_000_000_000_000L),
+                    BigInteger.valueOf(1_990_000_000_000L + drift));
+        }
+        return detector.detect();
+    }
+}
@@ -0,0 +1,82 @@
+package com.goblin.swap.bench;
+
+import com.goblin.swap.contract.CallCodec;
+import com.goblin.swap.harness.LocalChain;
+import com.goblin.swap.harness.LocalMarket;
+import io.nuls.contract.sdk.Address;
+import io.nuls.contract.sdk.Msg;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The token calls of one {@code tokenToNuls} swap plus a {@code skim}: pull tokens from the trader, pay
+ * some back and read the exchange's balance, once with inline {@code String[][]} building as the
+ * exchange used to do and once through {@link CallCodec}. Both run inside the exchange's frame so
+ * {@code Msg.address()} is the exchange. Run with {@code -prof gc} to compare allocation per call.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CallCodecBenchmark {
+    private static final BigInteger FUNDS = BigInteger.TEN.pow(30);
+    private static final BigInteger AMOUNT = BigInteger.valueOf(1_000_000);
+
+    private LocalChain chain;
+    private LocalMarket market;
+    private LocalMarket.Pool pool;
+    private Address trader;
+    private CallCodec codec;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        chain = new LocalChain(false);
+        LocalChain.install(chain);
+        market = new LocalMarket(chain);
+        pool = market.createExchange("GOB");
+        trader = market.newTrader(FUNDS, FUNDS);
+        codec = new CallCodec(pool.tokenAddress, pool.lpTokenAddress, market.factoryAddress, pool.exchange);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        LocalChain.install(null);
+    }
+
+    @Benchmark
+    public BigInteger inline() {
+        return market.execute(trader, pool, null, swap -> {
+            Address token = pool.tokenAddress;
+            String[][] args = new String[][]{new String[]{trader.toString()}, new String[]{Msg.address().toString()}, new String[]{AMOUNT.toString()}};
+            token.call("transferFrom", null, args, null);
+            String[][] args1 = new String[][]{new String[]{trader.toString()}, new String[]{AMOUNT.toString()}};
+            token.call("transfer", null, args1, null);
+            String[][] args2 = new String[][]{new String[]{Msg.address().toString()}};
+            return new BigInteger(token.callWithReturnValue("balanceOf", null, args2, null));
+        });
+    }
+
+    @Benchmark
+    public BigInteger codec() {
+        return market.execute(trader, pool, null, swap -> {
+            codec.transferFrom(trader, AMOUNT);
+            codec.transfer(trader, AMOUNT);
+            return codec.selfBalance();
+        });
+    }
+}
@@ -0,0 +1,285 @@
+package com.goblin.swap.bench;
+
+import com.goblin.swap.contract.GoblinSwap;
+import com.goblin.swap.harness.LocalChain;
+import com.goblin.swap.harness.LocalMarket;
+import io.nuls.contract.sdk.Address;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Drives every public GoblinSwap entry point through the in-memory SDK stand-ins. Besides throughput,
+ * {@link Counters} reports cross-contract calls and events as rates next to the primary score, so
+ * {@code counter / score} is the count per operation; the same per-op figures are printed at the end
+ * of each iteration. {@code eventMode} 1 switches the exchange to compact {@code PoolUpdate} events.
+ * Run with {@code -prof gc} for the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GoblinSwapBenchmark {
+    private static final BigInteger RESERVE = BigInteger.valueOf(100_000_000_000_000L);
+    private static final BigInteger FUNDS = BigInteger.TEN.pow(30);
+    private static final BigInteger AMOUNT = BigInteger.valueOf(1_000_000);
+    private static final BigInteger DEADLINE = LocalMarket.DEADLINE;
+
+    @Param({"0", "1"})
+    public int eventMode;
+
+    private LocalChain chain;
+    private LocalMarket market;
+    private LocalMarket.Pool pool;
+    private LocalMarket.Pool other;
+    private Address trader;
+    private Address recipient;
+    private String[] recipients;
+    private int[] directions;
+    private BigInteger[] amounts;
+    private BigInteger[] minOuts;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long crossContractCalls;
+        public long events;
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        chain = new LocalChain(false);
+        LocalChain.install(chain);
+        market = new LocalMarket(chain);
+        pool = market.createExchange("GOB");
+        other = market.createExchange("ORC");
+        market.execute(market.deployer, pool, null, swap -> {
+            swap.setEventMode(eventMode);
+            return null;
+        });
+        pool.seed(RESERVE, RESERVE);
+        other.seed(RESERVE, RESERVE);
+        trader = market.newTrader(FUNDS, FUNDS);
+        recipient = chain.newAddress();
+        market.execute(trader, pool, RESERVE, swap -> swap.addLiquidity(BigInteger.ONE, FUNDS, DEADLINE));
+
+        directions = new int[16];
+        amounts = new BigInteger[16];
+        minOuts = new BigInteger[16];
+        recipients = new String[16];
+        for (int i = 0; i < 16; i++) {
+            directions[i] = i & 1;
+            amounts[i] = AMOUNT;
+            minOuts[i] = BigInteger.ONE;
+            recipients[i] = (i & 2) == 0 ? trader.toString() : recipient.toString();
+        }
+        chain.resetCounters();
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long ops = Math.max(1, chain.transactions());
+        System.out.printf("%n  per op: %.2f cross-contract calls, %.2f events%n",
+                (double) chain.crossContractCalls() / ops, (double) chain.events() / ops);
+        LocalChain.install(null);
+    }
+
+    private <R> R run(Counters counters, BigInteger value, Function<GoblinSwap, R> body) {
+        long calls = chain.crossContractCalls();
+        long events = chain.events();
+        R result = market.execute(trader, pool, value, body);
+        counters.crossContractCalls += chain.crossContractCalls() - calls;
+        counters.events += chain.events() - events;
+        return result;
+    }
+
+    @Benchmark
+    public BigInteger nulsToTokenSwapInput(Counters c) {
+        return run(c, AMOUNT, swap -> swap.nulsToTokenSwapInput(BigInteger.ONE, DEADLINE));
+    }
+
+    @Benchmark
+    public BigInteger nulsToTokenTransferInput(Counters c) {
+        return run(c, AMOUNT, swap -> swap.nulsToTokenTransferInput(BigInteger.ONE, DEADLINE, recipient));
+    }
+
+    @Benchmark
+    public BigInteger nulsToTokenSwapOutput(Counters c) {
+        return run(c, AMOUNT.multiply(BigInteger.TEN), swap -> swap.nulsToTokenSwapOutput(AMOUNT, DEADLINE));
+    }
+
+    @Benchmark
+    public BigInteger nulsToTokenTransferOutput(Counters c) {
+        return run(c, AMOUNT.multiply(BigInteger.TEN), swap -> swap.nulsToTokenTransferOutput(AMOUNT, DEADLINE, recipient));
+    }
+
+    @Benchmark
+    public BigInteger tokenToNulsSwapInput(Counters c) {
+        return run(c, null, swap -> swap.tokenToNulsSwapInput(AMOUNT, BigInteger.ONE, DEADLINE));
+    }
+
+    @Benchmark
+    public BigInteger tokenToNulsTransferInput(Counters c) {
+        return run(c, null, swap -> swap.tokenToNulsTransferInput(AMOUNT, BigInteger.ONE, DEADLINE, recipient));
+    }
+
+    @Benchmark
+    public BigInteger tokenToNulsSwapOutput(Counters c) {
+        return run(c, null, swap -> swap.tokenToNulsSwapOutput(AMOUNT, FUNDS, DEADLINE));
+    }
+
+    @Benchmark
+    public BigInteger tokenToNulsTransferOutput(Counters c) {
+        return run(c, null, swap -> swap.tokenToNulsTransferOutput(AMOUNT, FUNDS, DEADLINE, recipient));
+    }
+
+    @Benchmark
+    public BigInteger tokenToTokenSwapInput(Counters c) {
+        return run(c, null, swap -> swap.tokenToTokenSwapInput(AMOUNT, BigInteger.ONE, BigInteger.ONE, DEADLINE, other.tokenAddress));
+    }
+
+    @Benchmark
+    public BigInteger tokenToTokenTransferInput(Counters c) {
+        return run(c, null, swap -> swap.tokenToTokenTransferInput(AMOUNT, BigInteger.ONE, BigInteger.ONE, DEADLINE, recipient, other.tokenAddress));
+    }
+
+    @Benchmark
+    public BigInteger tokenToTokenSwapOutput(Counters c) {
+        return run(c, null, swap -> swap.tokenToTokenSwapOutput(AMOUNT, FUNDS, FUNDS, DEADLINE, other.tokenAddress));
+    }
+
+    @Benchmark
+    public BigInteger tokenToTokenTransferOutput(Counters c) {
+        return run(c, null, swap -> swap.tokenToTokenTransferOutput(AMOUNT, FUNDS, FUNDS, DEADLINE, recipient, other.tokenAddress));
+    }
+
+    @Benchmark
+    public BigInteger tokenToExchangeSwapInput(Counters c) {
+        return run(c, null, swap -> swap.tokenToExchangeSwapInput(AMOUNT, BigInteger.ONE, BigInteger.ONE, DEADLINE, other.exchange));
+    }
+
+    @Benchmark
+    public BigInteger tokenToExchangeTransferInput(Counters c) {
+        return run(c, null, swap -> swap.tokenToExchangeTransferInput(AMOUNT, BigInteger.ONE, BigInteger.ONE, DEADLINE, recipient, other.exchange));
+    }
+
+    @Benchmark
+    public BigInteger tokenToExchangeSwapOutput(Counters c) {
+        return run(c, null, swap -> swap.tokenToExchangeSwapOutput(AMOUNT, FUNDS, FUNDS, DEADLINE, other.exchange));
+    }
+
+    @Benchmark
+    public BigInteger tokenToExchangeTransferOutput(Counters c) {
+        return run(c, null, swap -> swap.tokenToExchangeTransferOutput(AMOUNT, FUNDS, FUNDS, DEADLINE, recipient, other.exchange));
+    }
+
+    @Benchmark
+    public Object batchSwap16(Counters c) {
+        return run(c, AMOUNT.multiply(BigInteger.valueOf(8)), swap -> swap.batchSwap(directions, amounts, minOuts, recipients, DEADLINE));
+    }
+
+    @Benchmark
+    public BigInteger addLiquidity(Counters c) {
+        return run(c, AMOUNT, swap -> swap.addLiquidity(BigInteger.ONE, FUNDS, DEADLINE));
+    }
+
+    @Benchmark
+    public Object removeLiquidity(Counters c) {
+        return run(c, null, swap -> {
+            swap.removeLiquidity(AMOUNT, BigInteger.ONE, BigInteger.ONE, DEADLINE);
+            return null;
+        });
+    }
+
+    @Benchmark
+    public Object addRemoveSyncLpToken(Counters c) {
+        return run(c, AMOUNT, swap -> {
+            swap.removeLiquidity(swap.addLiquidity(BigInteger.ONE, FUNDS, DEADLINE), BigInteger.ONE, BigInteger.ONE, DEADLINE);
+            swap.syncLpToken();
+            return null;
+        });
+    }
+
+    @Benchmark
+    public Object sync(Counters c) {
+        return run(c, null, swap -> {
+            swap.sync();
+            return null;
+        });
+    }
+
+    @Benchmark
+    public Object skim(Counters c) {
+        return run(c, null, swap -> {
+            swap.skim(recipient);
+            return null;
+        });
+    }
+
+    @Benchmark
+    public Address refreshExchange(Counters c) {
+        return run(c, null, swap -> swap.refreshExchange(other.tokenAddress));
+    }
+
+    @Benchmark
+    public BigInteger getNulsToTokenInputPrice(Counters c) {
+        return run(c, null, swap -> swap.getNulsToTokenInputPrice(AMOUNT));
+    }
+
+    @Benchmark
+    public BigInteger getTokenToNulsInputPrice(Counters c) {
+        return run(c, null, swap -> swap.getTokenToNulsInputPrice(AMOUNT));
+    }
+
+    @Benchmark
+    public BigInteger getNulsToTokenOutputPrice(Counters c) {
+        return run(c, null, swap -> swap.getNulsToTokenOutputPrice(AMOUNT));
+    }
+
+    @Benchmark
+    public BigInteger getTokenToNulsOutputPrice(Counters c) {
+        return run(c, null, swap -> swap.getTokenToNulsOutputPrice(AMOUNT));
+    }
+
+    @Benchmark
+    public Object getNulsToTokenInputPrices16(Counters c) {
+        return run(c, null, swap -> swap.getNulsToTokenInputPrices(amounts));
+    }
+
+    @Benchmark
+    public Object getQuoteCurve16(Counters c) {
+        return run(c, null, swap -> swap.getQuoteCurve(0, AMOUNT, 16));
+    }
+
+    @Benchmark
+    public BigInteger getTokenBalance(Counters c) {
+        return run(c, null, swap -> swap.getTokenBalance(pool.exchange));
+    }
+
+    @Benchmark
+    public BigInteger getLiquidity(Counters c) {
+        return run(c, null, swap -> swap.getLiquidity(AMOUNT, BigInteger.ONE, FUNDS, DEADLINE));
+    }
+
+    @Benchmark
+    public BigInteger getLiquidityTokenAmount(Counters c) {
+        return run(c, null, swap -> swap.getLiquidityTokenAmount(AMOUNT));
+    }
+}
@@ -0,0 +1,105 @@
+package com.goblin.swap.bench;
+
+import com.goblin.swap.indexer.LpBalanceIndex;
+import com.goblin.swap.indexer.NulsAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code transfer} applies one LP transfer between random holders of 16 exchanges to a live
+ * {@link LpBalanceIndex}, checkpointing every 1000 blocks of 100 transfers. {@code reopen} is a restart:
+ * it opens the checkpoint of {@code HOLDERS} holders written in setup and reads one balance, and should
+ * not grow with the holder count. Scores are microseconds per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LpBalanceIndexBenchmark {
+    private static final int HOLDERS = 500_000;
+    private static final int EXCHANGES = 16;
+    private static final int TRANSFERS_PER_BLOCK = 100;
+    private static final BigInteger MINT = BigInteger.valueOf(1_000_000_000_000L);
+
+    private final Random random = new Random(42);
+    private String[] holders;
+    private String[] exchanges;
+    private Path root;
+    private Path checkpoint;
+    private LpBalanceIndex live;
+    private long transfers;
+
+    @Setup
+    public void setup() throws IOException {
+        holders = new String[HOLDERS];
+        byte[] bytes = new byte[NulsAddress.LENGTH];
+        for (int i = 0; i < HOLDERS; i++) {
+            random.nextBytes(bytes);
+            bytes[0] = 1;
+            bytes[1] = 0;
+            bytes[2] = 1;
+            holders[i] = NulsAddress.encode("NULS", bytes);
+        }
+        exchanges = new String[EXCHANGES];
+        for (int i = 0; i < EXCHANGES; i++) {
+            random.nextBytes(bytes);
+            bytes[0] = 1;
+            bytes[1] = 0;
+            bytes[2] = 2;
+            exchanges[i] = NulsAddress.encode("NULS", bytes);
+        }
+        root = Files.createTempDirectory("goblin-lp-index");
+        checkpoint = root.resolve("checkpoint");
+        LpBalanceIndex index = new LpBalanceIndex(checkpoint);
+        for (int i = 0; i < HOLDERS; i++) {
+            index.onTransfer(exchanges[i % EXCHANGES], i / TRANSFERS_PER_BLOCK, null, holders[i], MINT);
+        }
+        index.flush();
+        index.close();
+        live = new LpBalanceIndex(root.resolve("live"));
+        for (int i = 0; i < HOLDERS; i++) {
+            live.onTransfer(exchanges[i % EXCHANGES], 0, null, holders[i], MINT);
+        }
+        transfers = TRANSFERS_PER_BLOCK;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        live.close();
+        Files.walk(root).sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+    }
+
+    @Benchmark
+    public long transfer() throws IOException {
+        int from = random.nextInt(HOLDERS);
+        int to = random.nextInt(HOLDERS);
+        live.onTransfer(exchanges[from % EXCHANGES], transfers++ / TRANSFERS_PER_BLOCK, holders[from], holders[to], BigInteger.ONE);
+        return live.size();
+    }
+
+    @Benchmark
+    public BigInteger reopen() throws IOException {
+        try (LpBalanceIndex index = new LpBalanceIndex(checkpoint)) {
+            int holder = random.nextInt(HOLDERS);
+            return index.balanceOf(exchanges[holder % EXCHANGES], holders[holder]);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.goblin.swap.bench;
+
+import com.goblin.swap.pricing.QuoteCache;
+import com.goblin.swap.pricing.QuoteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quotes against a {@link QuoteService} mirroring 64 exchanges, loaded from a stand-in feed of
+ * {@code Snapshot} events in the node's JSON format. {@code inputPrice} and {@code amountsOut} run on the
+ * caller's thread; {@code submitted} sends a burst of requests to the service's virtual threads, and each
+ * iteration prints the service's submit-to-answer percentiles.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuoteServiceBenchmark {
+    private static final int EXCHANGES = 64;
+    private static final int AMOUNTS = 4096;
+    private static final int BURST = 1024;
+
+    private QuoteService service;
+    private String[] exchanges;
+    private String[][] paths;
+    private BigInteger[] amounts;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        service = new QuoteService(AMOUNTS);
+        exchanges = new String[EXCHANGES];
+        paths = new String[EXCHANGES][];
+        StringBuilder feed = new StringBuilder();
+        for (int i = 0; i < EXCHANGES; i++) {
+            exchanges[i] = "NULSd6HgExchange" + i;
+            service.register("NULSd6HgToken" + i, exchanges[i]);
+            for (int block = 0; block < 4; block++) {
+                feed.append("{\"contractAddress\":\"").append(exchanges[i]).append("\",\"blockNumber\":").append(block)
+                        .append(",\"event\":\"Snapshot\",\"payload\":{\"operator\":\"NULSd6HgBuyer\",\"nuls_balance\":\"")
+                        .append(1_000_000_000_000L + i * 1_000_000L + block).append("\",\"token_balance\":\"")
+                        .append(2_000_000_000_000L - i * 1_000_000L).append("\"}}\n");
+            }
+        }
+        service.ingest(new BufferedReader(new StringReader(feed.toString())));
+        for (int i = 0; i < EXCHANGES; i++) {
+            paths[i] = new String[]{"NULSd6HgToken" + i, "NULSd6HgToken" + ((i + 1) % EXCHANGES)};
+        }
+        amounts = new BigInteger[AMOUNTS];
+        for (int i = 0; i < AMOUNTS; i++) {
+            amounts[i] = BigInteger.valueOf(1_000_000L + i * 7_919L);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetLatency() {
+        service.latency().reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printLatency() {
+        if (service.latency().count() > 0) {
+            System.out.println("submit latency ns " + service.latency().percentiles());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public BigInteger inputPrice() {
+        int i = next++;
+        return service.inputPrice(exchanges[i % EXCHANGES], i & 1, amounts[i % AMOUNTS]);
+    }
+
+    @Benchmark
+    public List<BigInteger> amountsOut() {
+        int i = next++;
+        return service.amountsOut(amounts[i % AMOUNTS], paths[i % EXCHANGES]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public Object submitted() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[BURST];
+        for (int j = 0; j < BURST; j++) {
+            int i = next++;
+            futures[j] = service.submitInputPrice(exchanges[i % EXCHANGES], QuoteCache.NULS_TO_TOKEN, amounts[i % AMOUNTS]);
+        }
+        return CompletableFuture.allOf(futures).join();
+    }
+}
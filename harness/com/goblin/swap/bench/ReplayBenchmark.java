@@ -0,0 +1,136 @@
+package com.goblin.swap.bench;
+
+import com.goblin.swap.harness.LocalMarket;
+import com.goblin.swap.harness.ReplayEngine;
+import com.goblin.swap.harness.ReplayResult;
+import com.goblin.swap.harness.ReplayTx;
+import io.nuls.contract.sdk.Address;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a synthetic stream over 32 pools, sequentially and on a fork-join pool of {@code parallelism}
+ * threads; the score is transactions per second. Token-to-token hops only join pools 2k and 2k+1, so the
+ * stream splits into 16 partitions. Setup checks that the parallel result equals the sequential one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplayBenchmark {
+    private static final int POOLS = 32;
+    private static final int TRANSACTIONS = 20_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private ReplayEngine engine;
+    private ForkJoinPool executor;
+
+    @Setup
+    public void setup() {
+        List<String> symbols = new ArrayList<String>();
+        for (int i = 0; i < POOLS; i++) {
+            symbols.add("P" + i);
+        }
+        engine = new ReplayEngine(symbols, syntheticStream(POOLS, TRANSACTIONS, 42));
+        executor = new ForkJoinPool(parallelism);
+        ReplayResult sequential = engine.runSequential();
+        ReplayResult parallel = engine.runParallel(executor);
+        if (!sequential.equals(parallel)) {
+            throw new IllegalStateException("parallel replay differs at transaction " + sequential.firstDifference(parallel));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public ReplayResult sequential() {
+        return engine.runSequential();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public ReplayResult parallel() {
+        return engine.runParallel(executor);
+    }
+
+    /**
+     * Seeds every pool, then mixes NULS/token swaps both ways, token-to-token hops between paired pools
+     * and liquidity changes by each pool's seeder, eight transactions per block.
+     */
+    public static List<ReplayTx> syntheticStream(int pools, int transactions, long seed) {
+        final BigInteger deadline = LocalMarket.DEADLINE;
+        Random random = new Random(seed);
+        List<ReplayTx> txs = new ArrayList<ReplayTx>();
+        Address[] seeders = new Address[pools];
+        Address[] traders = new Address[64];
+        for (int i = 0; i < traders.length; i++) {
+            traders[i] = new Address(String.format("NULSd6HgTrader%023d", i));
+        }
+        long block = 1;
+        long timestamp = 1_600_000_000L;
+        BigInteger seedNuls = BigInteger.valueOf(1_000_000_000_000L);
+        BigInteger seedTokens = BigInteger.valueOf(2_000_000_000_000L);
+        for (int p = 0; p < pools; p++) {
+            seeders[p] = new Address(String.format("NULSd6HgSeeder%023d", p));
+            txs.add(new ReplayTx(block, timestamp, seeders[p], p, -1, seedNuls, seedTokens,
+                    (swap, all) -> swap.addLiquidity(BigInteger.ONE, seedTokens, deadline)));
+        }
+        while (txs.size() < transactions) {
+            if (txs.size() % 8 == 0) {
+                block++;
+                timestamp += 10;
+            }
+            int p = random.nextInt(pools);
+            Address trader = traders[random.nextInt(traders.length)];
+            final BigInteger amount = BigInteger.valueOf(1_000_000 + random.nextInt(1_000_000_000));
+            int kind = random.nextInt(100);
+            if (kind < 45) {
+                txs.add(new ReplayTx(block, timestamp, trader, p, -1, amount, null,
+                        (swap, all) -> swap.nulsToTokenSwapInput(BigInteger.ONE, deadline)));
+            } else if (kind < 90) {
+                txs.add(new ReplayTx(block, timestamp, trader, p, -1, null, amount,
+                        (swap, all) -> swap.tokenToNulsSwapInput(amount, BigInteger.ONE, deadline)));
+            } else if (kind < 95) {
+                final int target = p ^ 1;
+                txs.add(new ReplayTx(block, timestamp, trader, p, target, null, amount,
+                        (swap, all) -> swap.tokenToTokenSwapInput(amount, BigInteger.ONE, BigInteger.ONE, deadline, all.get(target).tokenAddress)));
+            } else if (kind < 98) {
+                txs.add(new ReplayTx(block, timestamp, seeders[p], p, -1, amount, amount.multiply(BigInteger.valueOf(3)),
+                        (swap, all) -> swap.addLiquidity(BigInteger.ONE, amount.multiply(BigInteger.valueOf(3)), deadline)));
+            } else {
+                txs.add(new ReplayTx(block, timestamp, seeders[p], p, -1, null, null,
+                        (swap, all) -> {
+                            swap.removeLiquidity(amount, BigInteger.ONE, BigInteger.ONE, deadline);
+                            return null;
+                        }));
+            }
+        }
+        return txs;
+    }
+}
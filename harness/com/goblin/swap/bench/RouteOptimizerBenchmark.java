@@ -0,0 +1,70 @@
+package com.goblin.swap.bench;
+
+import com.goblin.swap.pricing.RouteOptimizer;
+import com.goblin.swap.pricing.SwapMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to split one order over a 50-exchange market, 25 exchanges listing each of the two tokens, so every
+ * pool is a candidate for the token-to-token order and half of them for the NULS order; the score is
+ * microseconds per plan. Setup checks that the split beats the best single exchange pair.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouteOptimizerBenchmark {
+    private static final int EXCHANGES = 50;
+    private static final BigInteger ORDER = BigInteger.valueOf(2_000_000_000_000L);
+
+    private final RouteOptimizer optimizer = new RouteOptimizer();
+    private long next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        BigInteger[][] reserves = new BigInteger[EXCHANGES][];
+        for (int i = 0; i < EXCHANGES; i++) {
+            BigInteger nuls_reserve = BigInteger.valueOf(1_000_000_000_000L + random.nextInt(1_000_000_000) * 1000L);
+            BigInteger token_reserve = BigInteger.valueOf(2_000_000_000_000L + random.nextInt(1_000_000_000) * 1000L);
+            reserves[i] = new BigInteger[]{nuls_reserve, token_reserve};
+            optimizer.update("NULSd6HgExchange" + i, "NULSd6HgToken" + (i % 2), nuls_reserve, token_reserve);
+        }
+        BigInteger best = BigInteger.ZERO;
+        for (int i = 0; i < EXCHANGES; i += 2) {
+            BigInteger nuls_bought = SwapMath.getInputPrice(ORDER, reserves[i][1], reserves[i][0]);
+            for (int j = 1; j < EXCHANGES; j += 2) {
+                best = best.max(SwapMath.getInputPrice(nuls_bought, reserves[j][0], reserves[j][1]));
+            }
+        }
+        BigInteger split = optimizer.optimize("NULSd6HgToken0", "NULSd6HgToken1", ORDER, 50).amountOut;
+        if (split.compareTo(best) <= 0) {
+            throw new IllegalStateException("split " + split + " does not beat the best single path " + best);
+        }
+    }
+
+    @Benchmark
+    public RouteOptimizer.Plan tokenToToken() {
+        return optimizer.optimize("NULSd6HgToken0", "NULSd6HgToken1", ORDER.add(BigInteger.valueOf(next++)), 50);
+    }
+
+    @Benchmark
+    public RouteOptimizer.Plan nulsToToken() {
+        return optimizer.optimize(RouteOptimizer.NULS, "NULSd6HgToken1", ORDER.add(BigInteger.valueOf(next++)), 50);
+    }
+}
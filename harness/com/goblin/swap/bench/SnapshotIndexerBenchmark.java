@@ -0,0 +1,74 @@
+package com.goblin.swap.bench;
+
+import com.goblin.swap.indexer.SnapshotIndexer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingests a synthetic feed of {@code TokenPurchase}/{@code Snapshot} pairs over four exchanges into a
+ * fresh directory per invocation; the score is events per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SnapshotIndexerBenchmark {
+    private static final int EVENTS = 100_000;
+    private static final int EXCHANGES = 4;
+
+    private String feed;
+    private Path root;
+    private int run;
+
+    @Setup
+    public void setup() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < EVENTS / 2; i++) {
+            String exchange = "NULSd6HgExchange" + (i % EXCHANGES);
+            long block = i / 8;
+            long timestamp = 1_600_000_000L + block * 10;
+            String head = "{\"contractAddress\":\"" + exchange + "\",\"blockNumber\":" + block + ",\"timestamp\":" + timestamp;
+            builder.append(head).append(",\"event\":\"TokenPurchase\",\"payload\":{\"buyer\":\"NULSd6HgBuyer\",\"nuls_sold\":\"")
+                    .append(1_000_000 + i).append("\",\"tokens_bought\":\"").append(990_000 + i).append("\"}}\n");
+            builder.append(head).append(",\"event\":\"Snapshot\",\"payload\":{\"operator\":\"NULSd6HgBuyer\",\"nuls_balance\":\"")
+                    .append(100_000_000_000_000L + i).append("\",\"token_balance\":\"").append(100_000_000_000_000L - i).append("\"}}\n");
+        }
+        feed = builder.toString();
+        root = Files.createTempDirectory("goblin-indexer");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.walk(root).sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long ingest() throws IOException {
+        try (SnapshotIndexer indexer = new SnapshotIndexer(root.resolve(Integer.toString(run++)))) {
+            long count = indexer.ingest(new BufferedReader(new StringReader(feed)));
+            indexer.flush();
+            return count;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.goblin.swap.bench;
+
+import com.goblin.swap.pricing.SwapMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the contract's quote math, copied verbatim including its per-call {@code BigInteger.valueOf}
+ * allocations, with {@link SwapMath}. {@code reserveBits} 40 keeps every product on the long fast path;
+ * 100 forces the {@code BigInteger} fallback.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SwapMathBenchmark {
+    private static final int SIZE = 1024;
+
+    @Param({"40", "100"})
+    public int reserveBits;
+
+    private BigInteger[] amounts;
+    private BigInteger[] inputReserves;
+    private BigInteger[] outputReserves;
+    private long[] longAmounts;
+    private long[] longInputReserves;
+    private long[] longOutputReserves;
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        amounts = new BigInteger[SIZE];
+        inputReserves = new BigInteger[SIZE];
+        outputReserves = new BigInteger[SIZE];
+        longAmounts = new long[SIZE];
+        longInputReserves = new long[SIZE];
+        longOutputReserves = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            inputReserves[i] = new BigInteger(reserveBits, random).setBit(reserveBits - 1);
+            outputReserves[i] = new BigInteger(reserveBits, random).setBit(reserveBits - 1);
+            amounts[i] = new BigInteger(reserveBits - 8, random).add(BigInteger.ONE);
+            longAmounts[i] = amounts[i].longValue();
+            longInputReserves[i] = inputReserves[i].longValue();
+            longOutputReserves[i] = outputReserves[i].longValue();
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (SIZE - 1);
+        return index;
+    }
+
+    @Benchmark
+    public BigInteger contractInputPrice() {
+        int i = next();
+        BigInteger input_amount_with_fee = amounts[i].multiply(BigInteger.valueOf(997));
+        BigInteger numerator = input_amount_with_fee.multiply(outputReserves[i]);
+        BigInteger denominator = inputReserves[i].multiply(BigInteger.valueOf(1000)).add(input_amount_with_fee);
+        return numerator.divide(denominator);
+    }
+
+    @Benchmark
+    public BigInteger contractOutputPrice() {
+        int i = next();
+        BigInteger numerator = inputReserves[i].multiply(amounts[i]).multiply(BigInteger.valueOf(1000));
+        BigInteger denominator = (outputReserves[i].subtract(amounts[i])).multiply(BigInteger.valueOf(997));
+        return (numerator.divide(denominator)).add(BigInteger.ONE);
+    }
+
+    @Benchmark
+    public BigInteger swapMathInputPrice() {
+        int i = next();
+        return SwapMath.getInputPrice(amounts[i], inputReserves[i], outputReserves[i]);
+    }
+
+    @Benchmark
+    public BigInteger swapMathOutputPrice() {
+        int i = next();
+        return SwapMath.getOutputPrice(amounts[i], inputReserves[i], outputReserves[i]);
+    }
+
+    @Benchmark
+    public long swapMathLongInputPrice() {
+        int i = next();
+        if (reserveBits >= 64) {
+            return SwapMath.getInputPrice(amounts[i], inputReserves[i], outputReserves[i]).longValue();
+        }
+        return SwapMath.getInputPrice(longAmounts[i], longInputReserves[i], longOutputReserves[i]);
+    }
+
+    @Benchmark
+    public long swapMathLongOutputPrice() {
+        int i = next();
+        if (reserveBits >= 64) {
+            return SwapMath.getOutputPrice(amounts[i], inputReserves[i], outputReserves[i]).longValue();
+        }
+        return SwapMath.getOutputPrice(longAmounts[i], longInputReserves[i], longOutputReserves[i]);
+    }
+}
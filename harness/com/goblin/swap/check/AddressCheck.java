@@ -0,0 +1,41 @@
+package com.goblin.swap.check;
+
+import com.goblin.swap.indexer.NulsAddress;
+
+import static com.goblin.swap.check.Checks.require;
+
+/**
+ * {@link NulsAddress} on a mainnet and a testnet address: each must decode to its chain id and address
+ * type, encode back to the same string under its own prefix, and be rejected once a character changes.
+ */
+final class AddressCheck {
+    private static final String[][] ADDRESSES = {
+            // prefix, address, chain id, address type
+            {"NULS", "NULSd6HgsVSzCAJwLYBjvfP3NwbKCvV525GWn", "1", "2"},
+            {"tNULS", "tNULSeBaMnrs6JKrCy6TQdzYJZkMZJDng7QAsD", "2", "1"},
+    };
+
+    private AddressCheck() {
+    }
+
+    static void run() {
+        for (String[] address : ADDRESSES) {
+            byte[] bytes = NulsAddress.decode(address[1]);
+            int chain_id = (bytes[0] & 0xff) | (bytes[1] & 0xff) << 8;
+            require(chain_id == Integer.parseInt(address[2]) && bytes[2] == Integer.parseInt(address[3]),
+                    address[1] + " decoded to chain " + chain_id + ", type " + bytes[2]);
+            String encoded = NulsAddress.encode(address[0], bytes);
+            require(encoded.equals(address[1]), address[1] + " encoded back as " + encoded);
+
+            int last = address[1].length() - 1;
+            String changed = address[1].substring(0, last) + (address[1].charAt(last) == '2' ? '3' : '2');
+            boolean rejected = false;
+            try {
+                NulsAddress.decode(changed);
+            } catch (IllegalArgumentException e) {
+                rejected = true;
+            }
+            require(rejected, changed + " decoded despite its checksum");
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.goblin.swap.check;
+
+import com.goblin.swap.contract.GoblinSwap;
+import com.goblin.swap.harness.LocalChain;
+import com.goblin.swap.harness.LocalMarket;
+import com.goblin.swap.harness.Revert;
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.goblin.swap.check.Checks.require;
+
+/**
+ * Random rounds of auction-mode orders on one pool, each settled in the next block. Every order must be
+ * either filled at no less than its {@code min_out} or refunded in full; fills on one side must be
+ * proportional to the amounts in; the product of the reserves must not fall; and the exchange must hold
+ * exactly its reserves plus what is still claimable, before and after every claim. A token-to-exchange
+ * hop into the pool must revert rather than queue, and a pool emptied and seeded again while orders are
+ * queued must not count them into the new LP's share.
+ */
+final class AuctionCheck {
+    private static final int ROUNDS = 40;
+    private static final BigInteger FUNDS = BigInteger.TEN.pow(24);
+
+    private AuctionCheck() {
+    }
+
+    static void run() {
+        LocalChain chain = new LocalChain();
+        LocalChain previous = LocalChain.install(chain);
+        try {
+            LocalMarket market = new LocalMarket(chain);
+            LocalMarket.Pool pool = market.createExchange("A");
+            LocalMarket.Pool other = market.createExchange("B");
+            pool.seed(BigInteger.valueOf(100_000_000_000L), BigInteger.valueOf(200_000_000_000L));
+            other.seed(BigInteger.valueOf(100_000_000_000L), BigInteger.valueOf(200_000_000_000L));
+            market.execute(market.deployer, pool, null, swap -> {
+                swap.setAuctionMode(true);
+                return null;
+            });
+            Random random = new Random(7);
+            List<Address> claimants = new ArrayList<Address>();
+            for (int round = 0; round < ROUNDS; round++) {
+                round(chain, market, pool, random, claimants);
+                if (round % 5 == 4) {
+                    claimAll(market, pool, claimants);
+                }
+            }
+
+            Address trader = market.newTrader(FUNDS, FUNDS);
+            boolean reverted = false;
+            try {
+                market.execute(trader, other, null, swap -> swap.tokenToExchangeSwapInput(BigInteger.valueOf(1_000_000), BigInteger.ONE,
+                        BigInteger.ONE, LocalMarket.DEADLINE, pool.exchange));
+            } catch (Revert e) {
+                reverted = true;
+            }
+            require(reverted, "a token-to-exchange hop into an auction-mode pool was queued");
+            require(pool.contract.getAuctionOrderCount() == 0, "the reverted hop left an order behind");
+        } finally {
+            LocalChain.install(previous);
+        }
+        reseed();
+    }
+
+    // the last LP leaves and a new one seeds the pool while orders are still queued in the same block
+    private static void reseed() {
+        LocalChain chain = new LocalChain();
+        LocalChain previous = LocalChain.install(chain);
+        try {
+            LocalMarket market = new LocalMarket(chain);
+            LocalMarket.Pool pool = market.createExchange("R");
+            GoblinSwap swap = pool.contract;
+            Address provider = pool.seed(BigInteger.valueOf(100_000_000_000L), BigInteger.valueOf(200_000_000_000L));
+            market.execute(market.deployer, pool, null, s -> {
+                s.setAuctionMode(true);
+                return null;
+            });
+            List<Address> claimants = new ArrayList<Address>();
+            Address buyer = market.newTrader(FUNDS, FUNDS);
+            Address seller = market.newTrader(FUNDS, FUNDS);
+            claimants.add(buyer);
+            claimants.add(seller);
+            market.execute(buyer, pool, BigInteger.valueOf(3_000_000_000L), s -> s.nulsToTokenSwapInput(BigInteger.ONE, LocalMarket.DEADLINE));
+            market.execute(seller, pool, null, s -> s.tokenToNulsSwapInput(BigInteger.valueOf(1_000_000_000L), BigInteger.ONE, LocalMarket.DEADLINE));
+            BigInteger liquidity = swap.getLpBalance(provider);
+            market.execute(provider, pool, null, s -> {
+                s.removeLiquidity(liquidity, BigInteger.ONE, BigInteger.ONE, LocalMarket.DEADLINE);
+                return null;
+            });
+            require(swap.getAuctionOrderCount() == 2, "removing liquidity settled the auction in its own block");
+
+            BigInteger nuls = BigInteger.valueOf(50_000_000_000L);
+            BigInteger tokens = BigInteger.valueOf(70_000_000_000L);
+            Address next = pool.seed(nuls, tokens);
+            require(swap.getLpBalance(next).equals(nuls) && swap.getTotalSupply().equals(nuls), "the new LP was credited with queued orders");
+            require(swap.getNulsReserve().equals(nuls) && swap.getTokenReserve().equals(tokens), "queued orders were counted into the new reserves");
+
+            chain.nextBlock();
+            market.execute(buyer, pool, null, s -> {
+                s.settleAuction();
+                return null;
+            });
+            requireBacked(pool, claimants);
+            claimAll(market, pool, claimants);
+        } finally {
+            LocalChain.install(previous);
+        }
+    }
+
+    private static void round(LocalChain chain, LocalMarket market, LocalMarket.Pool pool, Random random, List<Address> claimants) {
+        GoblinSwap swap = pool.contract;
+        BigInteger nuls_reserve = swap.getNulsReserve();
+        BigInteger token_reserve = swap.getTokenReserve();
+        int orders = 1 + random.nextInt(12);
+        Address[] buyers = new Address[orders];
+        boolean[] buys = new boolean[orders];
+        BigInteger[] amounts = new BigInteger[orders];
+        BigInteger[] min_outs = new BigInteger[orders];
+        for (int i = 0; i < orders; i++) {
+            buyers[i] = market.newTrader(FUNDS, FUNDS);
+            buys[i] = random.nextBoolean();
+            BigInteger reserve = buys[i] ? nuls_reserve : token_reserve;
+            amounts[i] = reserve.multiply(BigInteger.valueOf(1 + random.nextInt(2_000))).divide(BigInteger.valueOf(100_000));
+            // about one order in five asks for more than any clearing price gives, to exercise refunds
+            BigInteger quote = buys[i] ? amounts[i].multiply(token_reserve).divide(nuls_reserve) : amounts[i].multiply(nuls_reserve).divide(token_reserve);
+            min_outs[i] = quote.multiply(BigInteger.valueOf(80 + random.nextInt(25))).divide(BigInteger.valueOf(100)).max(BigInteger.ONE);
+            final BigInteger amount = amounts[i];
+            final BigInteger min_out = min_outs[i];
+            if (buys[i]) {
+                market.execute(buyers[i], pool, amount, s -> s.nulsToTokenSwapInput(min_out, LocalMarket.DEADLINE));
+            } else {
+                market.execute(buyers[i], pool, null, s -> s.tokenToNulsSwapInput(amount, min_out, LocalMarket.DEADLINE));
+            }
+        }
+        require(swap.getAuctionOrderCount() == orders, "orders were not queued");
+        BigInteger product = swap.getNulsReserve().multiply(swap.getTokenReserve());
+        chain.nextBlock();
+        market.execute(buyers[0], pool, null, s -> {
+            s.settleAuction();
+            return null;
+        });
+        require(swap.getAuctionOrderCount() == 0, "auction not cleared");
+        require(swap.getNulsReserve().multiply(swap.getTokenReserve()).compareTo(product) >= 0, "clearing lowered the reserve product");
+
+        BigInteger[] fills = new BigInteger[orders];
+        for (int i = 0; i < orders; i++) {
+            Map<String, Object> claimable = swap.getClaimable(buyers[i]);
+            BigInteger nuls = (BigInteger) claimable.get("nuls");
+            BigInteger tokens = (BigInteger) claimable.get("tokens");
+            BigInteger refund = buys[i] ? nuls : tokens;
+            fills[i] = buys[i] ? tokens : nuls;
+            require(refund.signum() == 0 || fills[i].signum() == 0, "order both filled and refunded");
+            if (fills[i].signum() == 0) {
+                require(refund.equals(amounts[i]), "refund " + refund + " of an order of " + amounts[i]);
+            } else {
+                require(fills[i].compareTo(min_outs[i]) >= 0, "fill " + fills[i] + " under min_out " + min_outs[i]);
+            }
+            claimants.add(buyers[i]);
+        }
+        for (int i = 0; i < orders; i++) {
+            for (int j = 0; j < i; j++) {
+                if (buys[i] == buys[j] && fills[i].signum() > 0 && fills[j].signum() > 0) {
+                    // floor(a_i p) a_j and floor(a_j p) a_i differ by less than max(a_i, a_j)
+                    BigInteger skew = fills[i].multiply(amounts[j]).subtract(fills[j].multiply(amounts[i])).abs();
+                    require(skew.compareTo(amounts[i].max(amounts[j])) < 0, "orders " + j + " and " + i + " cleared at different prices");
+                }
+            }
+        }
+        requireBacked(pool, claimants);
+    }
+
+    private static void claimAll(LocalMarket market, LocalMarket.Pool pool, List<Address> claimants) {
+        for (Address claimant : claimants) {
+            Map<String, Object> claimable = pool.contract.getClaimable(claimant);
+            BigInteger nuls = (BigInteger) claimable.get("nuls");
+            BigInteger tokens = (BigInteger) claimable.get("tokens");
+            if (nuls.signum() == 0 && tokens.signum() == 0) {
+                continue;
+            }
+            BigInteger nuls_before = market.chain.balanceOf(claimant);
+            BigInteger tokens_before = pool.token.balanceOf(claimant);
+            market.execute(claimant, pool, null, swap -> {
+                swap.claim();
+                return null;
+            });
+            require(market.chain.balanceOf(claimant).subtract(nuls_before).equals(nuls), "claim paid the wrong NULS");
+            require(pool.token.balanceOf(claimant).subtract(tokens_before).equals(tokens), "claim paid the wrong tokens");
+        }
+        requireBacked(pool, claimants);
+        claimants.clear();
+        require(pool.nulsReserve().equals(pool.contract.getNulsReserve()) && pool.tokenReserve().equals(pool.contract.getTokenReserve()),
+                "balances differ from reserves with nothing left to claim");
+    }
+
+    private static void requireBacked(LocalMarket.Pool pool, List<Address> claimants) {
+        BigInteger nuls = pool.contract.getNulsReserve();
+        BigInteger tokens = pool.contract.getTokenReserve();
+        for (Address claimant : claimants) {
+            Map<String, Object> claimable = pool.contract.getClaimable(claimant);
+            nuls = nuls.add((BigInteger) claimable.get("nuls"));
+            tokens = tokens.add((BigInteger) claimable.get("tokens"));
+        }
+        require(pool.nulsReserve().equals(nuls), "exchange holds " + pool.nulsReserve() + " NULS, reserves plus claims are " + nuls);
+        require(pool.tokenReserve().equals(tokens), "exchange holds " + pool.tokenReserve() + " tokens, reserves plus claims are " + tokens);
+    }
+}
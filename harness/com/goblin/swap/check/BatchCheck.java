@@ -0,0 +1,137 @@
+package com.goblin.swap.check;
+
+import com.goblin.swap.contract.GoblinSwap;
+import com.goblin.swap.harness.LocalChain;
+import com.goblin.swap.harness.LocalMarket;
+import com.goblin.swap.harness.Revert;
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+
+import static com.goblin.swap.check.Checks.require;
+
+/**
+ * {@code batchSwap} against the same legs sent one by one as transfer swaps to a twin pool seeded
+ * identically. Legs mix both directions and pay the buyer or two other recipients. Each leg's amount out,
+ * the final reserves and every account's NULS and token movements must match, and a batch with one leg
+ * under its {@code min_out} must revert without moving anything.
+ */
+final class BatchCheck {
+    private static final int CASES = 100;
+    private static final int RECIPIENTS = 3;
+    private static final BigInteger FUNDS = BigInteger.TEN.pow(24);
+
+    private BatchCheck() {
+    }
+
+    static void run() {
+        Random random = new Random(3);
+        for (int c = 0; c < CASES; c++) {
+            LocalChain chain = new LocalChain();
+            LocalChain previous = LocalChain.install(chain);
+            try {
+                LocalMarket market = new LocalMarket(chain);
+                LocalMarket.Pool batch = market.createExchange("B");
+                LocalMarket.Pool twin = market.createExchange("T");
+                BigInteger nuls_reserve = BigInteger.valueOf(1_000_000_000L + (random.nextLong() >>> 24));
+                BigInteger token_reserve = BigInteger.valueOf(1_000_000_000L + (random.nextLong() >>> 24));
+                batch.seed(nuls_reserve, token_reserve);
+                twin.seed(nuls_reserve, token_reserve);
+                // index 0 is the buyer, the others only receive
+                Address[] batch_accounts = new Address[RECIPIENTS];
+                Address[] twin_accounts = new Address[RECIPIENTS];
+                for (int i = 0; i < RECIPIENTS; i++) {
+                    batch_accounts[i] = market.newTrader(FUNDS, FUNDS);
+                    twin_accounts[i] = market.newTrader(FUNDS, FUNDS);
+                }
+
+                int legs = 1 + random.nextInt(8);
+                int[] directions = new int[legs];
+                BigInteger[] amounts = new BigInteger[legs];
+                BigInteger[] min_outs = new BigInteger[legs];
+                String[] recipients = new String[legs];
+                int[] recipient_index = new int[legs];
+                BigInteger value = BigInteger.ZERO;
+                for (int i = 0; i < legs; i++) {
+                    directions[i] = random.nextInt(2);
+                    BigInteger reserve = directions[i] == 0 ? nuls_reserve : token_reserve;
+                    amounts[i] = reserve.multiply(BigInteger.valueOf(1 + random.nextInt(1_000))).divide(BigInteger.valueOf(20_000)).max(BigInteger.ONE);
+                    min_outs[i] = BigInteger.ONE;
+                    recipient_index[i] = random.nextInt(RECIPIENTS);
+                    recipients[i] = batch_accounts[recipient_index[i]].toString();
+                    if (directions[i] == 0) {
+                        value = value.add(amounts[i]);
+                    }
+                }
+
+                BigInteger[] nuls_before = new BigInteger[RECIPIENTS * 2];
+                BigInteger[] tokens_before = new BigInteger[RECIPIENTS * 2];
+                for (int i = 0; i < RECIPIENTS; i++) {
+                    nuls_before[i] = chain.balanceOf(batch_accounts[i]);
+                    tokens_before[i] = batch.token.balanceOf(batch_accounts[i]);
+                    nuls_before[RECIPIENTS + i] = chain.balanceOf(twin_accounts[i]);
+                    tokens_before[RECIPIENTS + i] = twin.token.balanceOf(twin_accounts[i]);
+                }
+
+                List<BigInteger> outs = market.execute(batch_accounts[0], batch, value, s -> s.batchSwap(directions, amounts, min_outs, recipients, LocalMarket.DEADLINE));
+                require(outs.size() == legs, "batch returned " + outs.size() + " amounts for " + legs + " legs");
+                for (int i = 0; i < legs; i++) {
+                    Address recipient = twin_accounts[recipient_index[i]];
+                    BigInteger amount = amounts[i];
+                    BigInteger out;
+                    if (directions[i] == 0) {
+                        out = market.execute(twin_accounts[0], twin, amount, s -> s.nulsToTokenTransferInput(BigInteger.ONE, LocalMarket.DEADLINE, recipient));
+                    } else {
+                        out = market.execute(twin_accounts[0], twin, null, s -> s.tokenToNulsTransferInput(amount, BigInteger.ONE, LocalMarket.DEADLINE, recipient));
+                    }
+                    require(outs.get(i).equals(out), "leg " + i + " paid " + outs.get(i) + ", alone it pays " + out);
+                }
+                require(batch.contract.getNulsReserve().equals(twin.contract.getNulsReserve())
+                        && batch.contract.getTokenReserve().equals(twin.contract.getTokenReserve()), "batch left other reserves than its legs");
+                require(batch.nulsReserve().equals(batch.contract.getNulsReserve()) && batch.tokenReserve().equals(batch.contract.getTokenReserve()),
+                        "batch balances differ from its reserves");
+                for (int i = 0; i < RECIPIENTS; i++) {
+                    BigInteger batch_nuls = chain.balanceOf(batch_accounts[i]).subtract(nuls_before[i]);
+                    BigInteger twin_nuls = chain.balanceOf(twin_accounts[i]).subtract(nuls_before[RECIPIENTS + i]);
+                    BigInteger batch_tokens = batch.token.balanceOf(batch_accounts[i]).subtract(tokens_before[i]);
+                    BigInteger twin_tokens = twin.token.balanceOf(twin_accounts[i]).subtract(tokens_before[RECIPIENTS + i]);
+                    require(batch_nuls.equals(twin_nuls) && batch_tokens.equals(twin_tokens),
+                            "account " + i + " moved " + batch_nuls + " NULS, " + batch_tokens + " tokens; legs alone move " + twin_nuls + ", " + twin_tokens);
+                }
+
+                requireAtomic(market, batch, batch_accounts[0], directions, amounts, recipients, value);
+            } finally {
+                LocalChain.install(previous);
+            }
+        }
+    }
+
+    // the last leg asks for the whole output reserve, which no swap can pay
+    private static void requireAtomic(LocalMarket market, LocalMarket.Pool pool, Address buyer, int[] directions, BigInteger[] amounts, String[] recipients,
+                                      BigInteger value) {
+        GoblinSwap swap = pool.contract;
+        BigInteger[] min_outs = new BigInteger[amounts.length];
+        for (int i = 0; i < amounts.length; i++) {
+            min_outs[i] = BigInteger.ONE;
+        }
+        int last = amounts.length - 1;
+        BigInteger nuls_quote = swap.getNulsReserve();
+        BigInteger token_quote = swap.getTokenReserve();
+        min_outs[last] = directions[last] == 0 ? token_quote : nuls_quote;
+        BigInteger nuls_held = pool.nulsReserve();
+        BigInteger tokens_held = pool.tokenReserve();
+        BigInteger buyer_nuls = market.chain.balanceOf(buyer);
+        boolean reverted = false;
+        try {
+            market.execute(buyer, pool, value, s -> s.batchSwap(directions, amounts, min_outs, recipients, LocalMarket.DEADLINE));
+        } catch (Revert e) {
+            reverted = true;
+        }
+        require(reverted, "a batch with a leg under its min_out went through");
+        require(swap.getNulsReserve().equals(nuls_quote) && swap.getTokenReserve().equals(token_quote)
+                && pool.nulsReserve().equals(nuls_held) && pool.tokenReserve().equals(tokens_held)
+                && market.chain.balanceOf(buyer).equals(buyer_nuls), "a reverted batch moved funds");
+    }
+}
@@ -0,0 +1,41 @@
+package com.goblin.swap.check;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Self-checking programs run against the stand-ins: each one drives real contracts or pricing code and
+ * throws {@link IllegalStateException} at the first mismatch. {@link #main} runs them all, or those named,
+ * e.g. {@code java -cp <classes> com.goblin.swap.check.Checks swap-math}.
+ */
+public final class Checks {
+
+    private Checks() {
+    }
+
+    public static void main(String[] args) {
+        List<String> names = Arrays.asList(args);
+        run(names, "batch", BatchCheck::run);
+        run(names, "router", RouterCheck::run);
+        run(names, "swap-math", SwapMathCheck::run);
+        run(names, "lp-ledger", LpLedgerCheck::run);
+        run(names, "auction", AuctionCheck::run);
+        run(names, "zap", ZapCheck::run);
+        run(names, "fees", FeeCheck::run);
+        run(names, "address", AddressCheck::run);
+    }
+
+    private static void run(List<String> names, String name, Runnable check) {
+        if (names.isEmpty() || names.contains(name)) {
+            long start = System.nanoTime();
+            check.run();
+            System.out.printf("%-10s ok  %6.0f ms%n", name, (System.nanoTime() - start) / 1e6);
+        }
+    }
+
+    static void require(boolean ok, String message) {
+        if (!ok) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
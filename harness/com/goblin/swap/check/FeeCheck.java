@@ -0,0 +1,123 @@
+package com.goblin.swap.check;
+
+import com.goblin.swap.contract.GoblinSwap;
+import com.goblin.swap.harness.LocalChain;
+import com.goblin.swap.harness.LocalMarket;
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.Random;
+
+import static com.goblin.swap.check.Checks.require;
+
+/**
+ * {@code getAccruedFees} against a direct computation: every swap's 0.3% fee on its input is split over
+ * the LP balances held at that moment, in 60-digit decimals. Providers add and remove liquidity between
+ * swaps of all four kinds, and each one's accrued NULS and token fees must equal the floor of its exact
+ * share or fall one unit short of it, never more.
+ */
+final class FeeCheck {
+    private static final int STEPS = 3_000;
+    private static final int PROVIDERS = 4;
+    private static final BigInteger FUNDS = BigInteger.TEN.pow(24);
+    private static final MathContext PRECISION = new MathContext(60);
+    private static final BigDecimal FEE = new BigDecimal("0.003");
+
+    private FeeCheck() {
+    }
+
+    static void run() {
+        LocalChain chain = new LocalChain();
+        LocalChain previous = LocalChain.install(chain);
+        try {
+            LocalMarket market = new LocalMarket(chain);
+            LocalMarket.Pool pool = market.createExchange("F");
+            GoblinSwap swap = pool.contract;
+            Address[] providers = new Address[PROVIDERS];
+            providers[0] = pool.seed(BigInteger.valueOf(1_000_000_000_000L), BigInteger.valueOf(3_000_000_000_000L));
+            chain.mint(providers[0], FUNDS);
+            pool.token.mint(providers[0], FUNDS);
+            pool.token.approve(providers[0], pool.exchange, FUNDS);
+            for (int i = 1; i < PROVIDERS; i++) {
+                providers[i] = market.newTrader(FUNDS, FUNDS);
+            }
+            Address trader = market.newTrader(FUNDS, FUNDS);
+            BigInteger seeded_supply = swap.getTotalSupply();
+            BigDecimal[] nuls_expected = new BigDecimal[PROVIDERS];
+            BigDecimal[] token_expected = new BigDecimal[PROVIDERS];
+            for (int i = 0; i < PROVIDERS; i++) {
+                nuls_expected[i] = BigDecimal.ZERO;
+                token_expected[i] = BigDecimal.ZERO;
+            }
+            Random random = new Random(5);
+            for (int step = 0; step < STEPS; step++) {
+                BigInteger nuls_reserve = swap.getNulsReserve();
+                BigInteger token_reserve = swap.getTokenReserve();
+                int kind = random.nextInt(6);
+                BigInteger nuls_in = BigInteger.ZERO;
+                BigInteger tokens_in = BigInteger.ZERO;
+                if (kind == 0) {
+                    nuls_in = share(nuls_reserve, random);
+                    market.execute(trader, pool, nuls_in, s -> s.nulsToTokenSwapInput(BigInteger.ONE, LocalMarket.DEADLINE));
+                } else if (kind == 1) {
+                    BigInteger tokens_bought = share(token_reserve, random);
+                    nuls_in = market.execute(trader, pool, FUNDS.shiftRight(4), s -> s.nulsToTokenSwapOutput(tokens_bought, LocalMarket.DEADLINE));
+                } else if (kind == 2) {
+                    BigInteger tokens_sold = share(token_reserve, random);
+                    tokens_in = tokens_sold;
+                    market.execute(trader, pool, null, s -> s.tokenToNulsSwapInput(tokens_sold, BigInteger.ONE, LocalMarket.DEADLINE));
+                } else if (kind == 3) {
+                    BigInteger nuls_bought = share(nuls_reserve, random);
+                    tokens_in = market.execute(trader, pool, null, s -> s.tokenToNulsSwapOutput(nuls_bought, FUNDS, LocalMarket.DEADLINE));
+                } else {
+                    // removals stop while the pool is under its seeded size, so swaps never round to nothing
+                    boolean add = kind == 4 || swap.getTotalSupply().compareTo(seeded_supply) < 0;
+                    changeLiquidity(market, pool, providers[random.nextInt(PROVIDERS)], add, nuls_reserve, random);
+                    continue;
+                }
+                BigDecimal supply = new BigDecimal(swap.getTotalSupply());
+                for (int i = 0; i < PROVIDERS; i++) {
+                    BigDecimal share = new BigDecimal(swap.getLpBalance(providers[i])).divide(supply, PRECISION);
+                    nuls_expected[i] = nuls_expected[i].add(new BigDecimal(nuls_in).multiply(FEE).multiply(share), PRECISION);
+                    token_expected[i] = token_expected[i].add(new BigDecimal(tokens_in).multiply(FEE).multiply(share), PRECISION);
+                }
+            }
+            for (int i = 0; i < PROVIDERS; i++) {
+                Map<String, Object> fees = swap.getAccruedFees(providers[i]);
+                same("provider " + i + " NULS", (BigInteger) fees.get("nulsFees"), nuls_expected[i]);
+                same("provider " + i + " token", (BigInteger) fees.get("tokenFees"), token_expected[i]);
+            }
+        } finally {
+            LocalChain.install(previous);
+        }
+    }
+
+    private static BigInteger share(BigInteger reserve, Random random) {
+        return reserve.multiply(BigInteger.valueOf(1 + random.nextInt(1_000))).divide(BigInteger.valueOf(100_000)).max(BigInteger.ONE);
+    }
+
+    private static void changeLiquidity(LocalMarket market, LocalMarket.Pool pool, Address provider, boolean add, BigInteger nuls_reserve, Random random) {
+        if (add) {
+            BigInteger nuls_amount = share(nuls_reserve, random).max(BigInteger.valueOf(1_000));
+            market.execute(provider, pool, nuls_amount, s -> s.addLiquidity(BigInteger.ONE, FUNDS, LocalMarket.DEADLINE));
+        } else {
+            BigInteger amount = pool.contract.getLpBalance(provider).shiftRight(1 + random.nextInt(3));
+            if (amount.signum() > 0) {
+                market.execute(provider, pool, null, s -> {
+                    s.removeLiquidity(amount, BigInteger.ONE, BigInteger.ONE, LocalMarket.DEADLINE);
+                    return null;
+                });
+            }
+        }
+    }
+
+    private static void same(String what, BigInteger accrued, BigDecimal expected) {
+        BigInteger floor = expected.setScale(0, RoundingMode.FLOOR).toBigIntegerExact();
+        BigInteger short_by = floor.subtract(accrued);
+        require(short_by.signum() >= 0 && short_by.compareTo(BigInteger.ONE) <= 0, what + " fees " + accrued + ", exact share " + expected);
+    }
+}
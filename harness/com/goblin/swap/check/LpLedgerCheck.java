@@ -0,0 +1,130 @@
+package com.goblin.swap.check;
+
+import com.goblin.swap.contract.GoblinSwap;
+import com.goblin.swap.harness.LocalChain;
+import com.goblin.swap.harness.LocalMarket;
+import com.goblin.swap.harness.Revert;
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.goblin.swap.check.Checks.require;
+
+/**
+ * The exchange as the single source of LP balances and locks. Only the LP token may set a lock, and never
+ * above the balance; removing or zapping out more than the unlocked part must revert without touching
+ * the ledger, while the unlocked part and, once unlocked, the rest can be removed. After random adds and
+ * removals by more providers than one {@code syncLpToken} batch, repeated syncs must drain the pending
+ * set a batch at a time and leave the LP token mirror equal to the exchange's balances.
+ */
+final class LpLedgerCheck {
+    private static final int PROVIDERS = 120;
+    private static final int MAX_SYNC_PROVIDERS = 50;
+    private static final BigInteger FUNDS = BigInteger.TEN.pow(24);
+
+    private LpLedgerCheck() {
+    }
+
+    static void run() {
+        LocalChain chain = new LocalChain();
+        LocalChain previous = LocalChain.install(chain);
+        try {
+            LocalMarket market = new LocalMarket(chain);
+            LocalMarket.Pool pool = market.createExchange("L");
+            GoblinSwap swap = pool.contract;
+            pool.seed(BigInteger.valueOf(100_000_000_000L), BigInteger.valueOf(200_000_000_000L));
+            Address provider = market.newTrader(FUNDS, FUNDS);
+            add(market, pool, provider, BigInteger.valueOf(10_000_000_000L));
+            BigInteger balance = swap.getLpBalance(provider);
+            BigInteger locked = balance.multiply(BigInteger.valueOf(3)).divide(BigInteger.valueOf(4));
+            BigInteger usable = balance.subtract(locked);
+
+            require(reverts(() -> market.execute(provider, pool, null, s -> {
+                s.setLockedLp(provider, locked);
+                return null;
+            })), "an account other than the LP token set a lock");
+            require(reverts(() -> lock(market, pool, provider, balance.add(BigInteger.ONE))), "a lock above the balance was accepted");
+            lock(market, pool, provider, locked);
+            require(swap.getLockedLp(provider).equals(locked) && swap.getCanUsedLpAmount(provider).equals(usable), "lock not recorded");
+
+            BigInteger supply = swap.getTotalSupply();
+            BigInteger nuls_reserve = swap.getNulsReserve();
+            int pending = swap.getPendingLpCount();
+            BigInteger over = usable.add(BigInteger.ONE);
+            require(reverts(() -> remove(market, pool, provider, over)), "removing locked liquidity went through");
+            require(reverts(() -> market.execute(provider, pool, null, s -> s.zapOutNuls(over, BigInteger.ONE, LocalMarket.DEADLINE))),
+                    "zapping out locked liquidity went through");
+            require(swap.getLpBalance(provider).equals(balance) && swap.getTotalSupply().equals(supply) && swap.getNulsReserve().equals(nuls_reserve)
+                    && swap.getPendingLpCount() == pending, "a reverted removal changed the ledger");
+
+            remove(market, pool, provider, usable);
+            require(swap.getLpBalance(provider).equals(locked) && swap.getCanUsedLpAmount(provider).signum() == 0, "the unlocked part was not removed");
+            lock(market, pool, provider, BigInteger.ZERO);
+            remove(market, pool, provider, locked);
+            require(swap.getLpBalance(provider).signum() == 0 && swap.getLockedLp(provider).signum() == 0, "unlocked liquidity was not removed");
+
+            sync(market, pool);
+            Random random = new Random(17);
+            List<Address> providers = new ArrayList<Address>();
+            providers.add(provider);
+            for (int i = 0; i < PROVIDERS; i++) {
+                Address next = market.newTrader(FUNDS, FUNDS);
+                providers.add(next);
+                add(market, pool, next, BigInteger.valueOf(10_000_000L + random.nextInt(1_000_000_000)));
+                if (random.nextInt(3) == 0) {
+                    remove(market, pool, next, swap.getLpBalance(next).shiftRight(1 + random.nextInt(3)));
+                }
+            }
+            require(swap.getPendingLpCount() == PROVIDERS, swap.getPendingLpCount() + " providers pending, " + PROVIDERS + " moved");
+            sync(market, pool);
+            for (Address each : providers) {
+                require(pool.lpToken.balanceOf(each).equals(swap.getLpBalance(each)),
+                        "LP token mirror holds " + pool.lpToken.balanceOf(each) + ", exchange " + swap.getLpBalance(each));
+            }
+        } finally {
+            LocalChain.install(previous);
+        }
+    }
+
+    private static void sync(LocalMarket market, LocalMarket.Pool pool) {
+        while (pool.contract.getPendingLpCount() > 0) {
+            int pending = pool.contract.getPendingLpCount();
+            market.execute(market.deployer, pool, null, s -> {
+                s.syncLpToken();
+                return null;
+            });
+            require(pool.contract.getPendingLpCount() == Math.max(0, pending - MAX_SYNC_PROVIDERS), "one sync left " + pool.contract.getPendingLpCount() + " of " + pending);
+        }
+    }
+
+    private static void lock(LocalMarket market, LocalMarket.Pool pool, Address owner, BigInteger amount) {
+        market.execute(pool.lpTokenAddress, pool, null, s -> {
+            s.setLockedLp(owner, amount);
+            return null;
+        });
+        pool.lpToken.lock(owner, amount);
+    }
+
+    private static void add(LocalMarket market, LocalMarket.Pool pool, Address provider, BigInteger nuls_amount) {
+        market.execute(provider, pool, nuls_amount, s -> s.addLiquidity(BigInteger.ONE, FUNDS, LocalMarket.DEADLINE));
+    }
+
+    private static void remove(LocalMarket market, LocalMarket.Pool pool, Address provider, BigInteger amount) {
+        market.execute(provider, pool, null, s -> {
+            s.removeLiquidity(amount, BigInteger.ONE, BigInteger.ONE, LocalMarket.DEADLINE);
+            return null;
+        });
+    }
+
+    private static boolean reverts(Runnable call) {
+        try {
+            call.run();
+        } catch (Revert e) {
+            return true;
+        }
+        return false;
+    }
+}
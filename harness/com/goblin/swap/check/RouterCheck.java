@@ -0,0 +1,86 @@
+package com.goblin.swap.check;
+
+import com.goblin.swap.harness.LocalChain;
+import com.goblin.swap.harness.LocalMarket;
+import com.goblin.swap.harness.Revert;
+import com.goblin.swap.router.GoblinRouter;
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+
+import static com.goblin.swap.check.Checks.require;
+
+/**
+ * {@code GoblinRouter.swapExactTokensForTokens} over a random three-hop path through four pools against
+ * {@code getAmountsOut} quoted just before it. The swap must return and deliver the last quoted amount,
+ * take exactly the amount in and leave nothing in the router; asking one unit more than the quote must
+ * revert without moving anything.
+ */
+final class RouterCheck {
+    private static final int CASES = 100;
+    private static final int POOLS = 4;
+    private static final BigInteger FUNDS = BigInteger.TEN.pow(24);
+
+    private RouterCheck() {
+    }
+
+    static void run() {
+        Random random = new Random(13);
+        for (int c = 0; c < CASES; c++) {
+            LocalChain chain = new LocalChain();
+            LocalChain previous = LocalChain.install(chain);
+            try {
+                LocalMarket market = new LocalMarket(chain);
+                LocalMarket.Pool[] pools = new LocalMarket.Pool[POOLS];
+                String[] path = new String[POOLS];
+                for (int i = 0; i < POOLS; i++) {
+                    pools[i] = market.createExchange("R" + i);
+                    pools[i].seed(BigInteger.valueOf(1_000_000_000L + (random.nextLong() >>> 24)), BigInteger.valueOf(1_000_000_000L + (random.nextLong() >>> 24)));
+                    path[i] = pools[i].tokenAddress.toString();
+                }
+                Address router = chain.create(market.deployer, () -> new GoblinRouter(market.factoryAddress));
+                Address trader = market.newTrader(FUNDS, FUNDS);
+                Address recipient = chain.newAddress();
+                LocalMarket.Pool first = pools[0];
+                LocalMarket.Pool last = pools[POOLS - 1];
+                first.token.approve(trader, router, FUNDS);
+                BigInteger amount_in = first.contract.getTokenReserve().multiply(BigInteger.valueOf(1 + random.nextInt(1_000))).divide(BigInteger.valueOf(10_000));
+
+                List<BigInteger> quote = chain.<GoblinRouter, List<BigInteger>>execute(trader, router, null, r -> r.getAmountsOut(amount_in, path));
+                require(quote.size() == POOLS && quote.get(0).equals(amount_in), "getAmountsOut returned " + quote);
+                BigInteger quoted = quote.get(POOLS - 1);
+
+                BigInteger[] nuls_held = new BigInteger[POOLS];
+                for (int i = 0; i < POOLS; i++) {
+                    nuls_held[i] = pools[i].nulsReserve();
+                }
+                BigInteger trader_tokens = first.token.balanceOf(trader);
+                boolean reverted = false;
+                try {
+                    chain.<GoblinRouter, BigInteger>execute(trader, router, null, r -> r.swapExactTokensForTokens(amount_in, quoted.add(BigInteger.ONE), path, recipient, LocalMarket.DEADLINE));
+                } catch (Revert e) {
+                    reverted = true;
+                }
+                require(reverted, "the route paid more than getAmountsOut quoted");
+                require(first.token.balanceOf(trader).equals(trader_tokens) && last.token.balanceOf(recipient).signum() == 0, "a reverted route moved tokens");
+                for (int i = 0; i < POOLS; i++) {
+                    require(pools[i].nulsReserve().equals(nuls_held[i]), "a reverted route moved pool " + i);
+                }
+
+                BigInteger amount_out = chain.<GoblinRouter, BigInteger>execute(trader, router, null, r -> r.swapExactTokensForTokens(amount_in, quoted, path, recipient, LocalMarket.DEADLINE));
+                require(amount_out.equals(quoted), "route returned " + amount_out + ", getAmountsOut quoted " + quoted);
+                require(last.token.balanceOf(recipient).equals(quoted), "recipient got " + last.token.balanceOf(recipient) + ", quoted " + quoted);
+                require(first.token.balanceOf(trader).equals(trader_tokens.subtract(amount_in)), "route took the wrong amount in");
+                for (int i = 0; i < POOLS; i++) {
+                    require(pools[i].token.balanceOf(router).signum() == 0 && chain.balanceOf(router).signum() == 0, "route left funds in the router");
+                    require(pools[i].nulsReserve().equals(pools[i].contract.getNulsReserve()) && pools[i].tokenReserve().equals(pools[i].contract.getTokenReserve()),
+                            "pool " + i + " balances differ from its reserves");
+                }
+            } finally {
+                LocalChain.install(previous);
+            }
+        }
+    }
+}
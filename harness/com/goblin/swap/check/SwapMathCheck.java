@@ -0,0 +1,128 @@
+package com.goblin.swap.check;
+
+import com.goblin.swap.contract.GoblinSwap;
+import com.goblin.swap.harness.LocalChain;
+import com.goblin.swap.harness.LocalMarket;
+import com.goblin.swap.pricing.SwapMath;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static com.goblin.swap.check.Checks.require;
+
+/**
+ * {@link SwapMath} against the contract's own {@code getInputPrice} and {@code getOutputPrice}, on every
+ * combination of values around the points where the {@code long} fast path overflows (2^31, 2^32,
+ * sqrt(2^63), 2^53, 2^62, 2^63 - 1) and on random operands of every bit length. Both the {@code long}
+ * and the {@code BigInteger} entry points must return the contract's result, or fail where it fails.
+ */
+final class SwapMathCheck {
+    private static final int RANDOM_CASES = 300_000;
+
+    private SwapMathCheck() {
+    }
+
+    static void run() {
+        LocalChain chain = new LocalChain();
+        LocalChain previous = LocalChain.install(chain);
+        try {
+            GoblinSwap swap = new LocalMarket(chain).createExchange("M").contract;
+            long[] boundaries = boundaries();
+            for (long a : boundaries) {
+                for (long b : boundaries) {
+                    for (long c : boundaries) {
+                        compare(swap, a, b, c);
+                    }
+                }
+            }
+            Random random = new Random(42);
+            for (int i = 0; i < RANDOM_CASES; i++) {
+                compare(swap, operand(random), operand(random), operand(random));
+            }
+        } finally {
+            LocalChain.install(previous);
+        }
+    }
+
+    private static long[] boundaries() {
+        long root = 3_037_000_499L;
+        long[] centres = {0, 1L << 31, 1L << 32, root, root * 1000 / 997, 1L << 53, 1L << 62, Long.MAX_VALUE / 1000, Long.MAX_VALUE / 997};
+        long[] values = new long[centres.length * 3 + 2];
+        int n = 0;
+        for (long centre : centres) {
+            values[n++] = Math.max(1, centre - 1);
+            values[n++] = Math.max(1, centre);
+            values[n++] = centre + 1;
+        }
+        values[n++] = Long.MAX_VALUE - 1;
+        values[n] = Long.MAX_VALUE;
+        return values;
+    }
+
+    // uniform over bit lengths, so small, mid-sized and near-2^63 operands are all common
+    private static long operand(Random random) {
+        int bits = 1 + random.nextInt(63);
+        return random.nextLong() >>> (64 - bits) | 1L << (bits - 1);
+    }
+
+    private static void compare(GoblinSwap swap, long amount, long input_reserve, long output_reserve) {
+        BigInteger a = BigInteger.valueOf(amount);
+        BigInteger in = BigInteger.valueOf(input_reserve);
+        BigInteger out = BigInteger.valueOf(output_reserve);
+        String operands = amount + ", " + input_reserve + ", " + output_reserve;
+
+        BigInteger expected = null;
+        try {
+            expected = swap.getInputPrice(a, in, out);
+        } catch (RuntimeException e) {
+            // the SwapMath entry points must fail too
+        }
+        same("getInputPrice(" + operands + ")", expected, bigInput(a, in, out), longInput(amount, input_reserve, output_reserve));
+
+        expected = null;
+        try {
+            expected = swap.getOutputPrice(a, in, out);
+        } catch (RuntimeException e) {
+            // as above
+        }
+        same("getOutputPrice(" + operands + ")", expected, bigOutput(a, in, out), longOutput(amount, input_reserve, output_reserve));
+    }
+
+    private static void same(String call, BigInteger expected, BigInteger big, BigInteger fast) {
+        require(expected == null ? big == null : expected.equals(big), call + ": BigInteger path " + big + ", contract " + expected);
+        BigInteger long_expected = expected != null && expected.bitLength() < 64 ? expected : null;
+        require(long_expected == null ? fast == null : long_expected.equals(fast), call + ": long path " + fast + ", contract " + expected);
+    }
+
+    private static BigInteger bigInput(BigInteger a, BigInteger in, BigInteger out) {
+        try {
+            return SwapMath.getInputPrice(a, in, out);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static BigInteger bigOutput(BigInteger a, BigInteger in, BigInteger out) {
+        try {
+            return SwapMath.getOutputPrice(a, in, out);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static BigInteger longInput(long a, long in, long out) {
+        try {
+            return BigInteger.valueOf(SwapMath.getInputPrice(a, in, out));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static BigInteger longOutput(long a, long in, long out) {
+        try {
+            return BigInteger.valueOf(SwapMath.getOutputPrice(a, in, out));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
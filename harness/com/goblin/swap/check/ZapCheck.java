@@ -0,0 +1,115 @@
+package com.goblin.swap.check;
+
+import com.goblin.swap.contract.GoblinSwap;
+import com.goblin.swap.harness.LocalChain;
+import com.goblin.swap.harness.LocalMarket;
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static com.goblin.swap.check.Checks.require;
+
+/**
+ * Each zap against the same steps done by hand on a twin pool seeded identically. A zap out must pay
+ * exactly what {@code removeLiquidity} followed by a swap of the unwanted side pays and leave the same
+ * reserves. A zap in must mint the smaller of the two shares its swapped deposit buys, and
+ * {@code getZapSwapAmount} must balance those shares to within one part in a million.
+ */
+final class ZapCheck {
+    private static final int CASES = 200;
+    private static final BigInteger FUNDS = BigInteger.TEN.pow(24);
+    private static final BigInteger MILLION = BigInteger.valueOf(1_000_000);
+
+    private ZapCheck() {
+    }
+
+    static void run() {
+        Random random = new Random(11);
+        for (int i = 0; i < CASES; i++) {
+            LocalChain chain = new LocalChain();
+            LocalChain previous = LocalChain.install(chain);
+            try {
+                LocalMarket market = new LocalMarket(chain);
+                LocalMarket.Pool zap = market.createExchange("Z");
+                LocalMarket.Pool twin = market.createExchange("T");
+                BigInteger nuls_reserve = BigInteger.valueOf(10_000_000 + (random.nextLong() >>> 20));
+                BigInteger token_reserve = BigInteger.valueOf(10_000_000 + (random.nextLong() >>> 20));
+                Address provider = zap.seed(nuls_reserve, token_reserve);
+                Address twin_provider = twin.seed(nuls_reserve, token_reserve);
+                // the twin's provider sells back the tokens it removes
+                twin.token.approve(twin_provider, twin.exchange, FUNDS);
+                Address trader = market.newTrader(FUNDS, FUNDS);
+                BigInteger fraction = BigInteger.valueOf(1 + random.nextInt(500));
+                switch (i % 4) {
+                    case 0:
+                        zapIn(market, zap, twin, trader, true, nuls_reserve.multiply(fraction).divide(BigInteger.valueOf(1000)).max(BigInteger.ONE));
+                        break;
+                    case 1:
+                        zapIn(market, zap, twin, trader, false, token_reserve.multiply(fraction).divide(BigInteger.valueOf(1000)).max(BigInteger.ONE));
+                        break;
+                    default:
+                        BigInteger amount = zap.contract.getLpBalance(provider).multiply(fraction).divide(BigInteger.valueOf(1000)).max(BigInteger.ONE);
+                        zapOut(market, zap, twin, provider, twin_provider, i % 4 == 2, amount);
+                        break;
+                }
+            } finally {
+                LocalChain.install(previous);
+            }
+        }
+    }
+
+    private static void zapIn(LocalMarket market, LocalMarket.Pool zap, LocalMarket.Pool twin, Address trader, boolean nuls, BigInteger amount) {
+        GoblinSwap swap = zap.contract;
+        BigInteger nuls_reserve = swap.getNulsReserve();
+        BigInteger token_reserve = swap.getTokenReserve();
+        BigInteger total_supply = swap.getTotalSupply();
+        BigInteger swapped = swap.getZapSwapAmount(amount, nuls ? nuls_reserve : token_reserve);
+        BigInteger minted;
+        BigInteger bought;
+        BigInteger by_nuls;
+        BigInteger by_tokens;
+        if (nuls) {
+            minted = market.execute(trader, zap, amount, s -> s.zapInNuls(BigInteger.ONE, LocalMarket.DEADLINE));
+            bought = market.execute(trader, twin, swapped, s -> s.nulsToTokenSwapInput(BigInteger.ONE, LocalMarket.DEADLINE));
+            by_nuls = amount.subtract(swapped).multiply(total_supply).divide(nuls_reserve.add(swapped));
+            by_tokens = bought.multiply(total_supply).divide(token_reserve.subtract(bought));
+        } else {
+            minted = market.execute(trader, zap, null, s -> s.zapInToken(amount, BigInteger.ONE, LocalMarket.DEADLINE));
+            bought = market.execute(trader, twin, null, s -> s.tokenToNulsSwapInput(swapped, BigInteger.ONE, LocalMarket.DEADLINE));
+            by_nuls = bought.multiply(total_supply).divide(nuls_reserve.subtract(bought));
+            by_tokens = amount.subtract(swapped).multiply(total_supply).divide(token_reserve.add(swapped));
+        }
+        require(minted.equals(by_nuls.min(by_tokens)), "zap in minted " + minted + ", shares bought " + by_nuls + " / " + by_tokens);
+        BigInteger gap = by_nuls.subtract(by_tokens).abs().multiply(MILLION);
+        require(gap.compareTo(by_nuls.max(by_tokens).max(MILLION)) <= 0, "zap swap amount leaves shares " + by_nuls + " / " + by_tokens);
+        require(swap.getNulsReserve().equals(nuls_reserve.add(nuls ? amount : BigInteger.ZERO))
+                && swap.getTokenReserve().equals(token_reserve.add(nuls ? BigInteger.ZERO : amount)), "zap in moved the wrong reserve");
+        require(swap.getTotalSupply().equals(total_supply.add(minted)) && swap.getLpBalance(trader).equals(minted), "zap in minted to the wrong place");
+    }
+
+    private static void zapOut(LocalMarket market, LocalMarket.Pool zap, LocalMarket.Pool twin, Address provider, Address twin_provider, boolean nuls,
+                               BigInteger amount) {
+        BigInteger nuls_before = market.chain.balanceOf(twin_provider);
+        BigInteger tokens_before = twin.token.balanceOf(twin_provider);
+        BigInteger paid;
+        BigInteger expected;
+        market.execute(twin_provider, twin, null, s -> {
+            s.removeLiquidity(amount, BigInteger.ONE, BigInteger.ONE, LocalMarket.DEADLINE);
+            return null;
+        });
+        BigInteger nuls_removed = market.chain.balanceOf(twin_provider).subtract(nuls_before);
+        BigInteger tokens_removed = twin.token.balanceOf(twin_provider).subtract(tokens_before);
+        if (nuls) {
+            paid = market.execute(provider, zap, null, s -> s.zapOutNuls(amount, BigInteger.ONE, LocalMarket.DEADLINE));
+            expected = nuls_removed.add(market.execute(twin_provider, twin, null, s -> s.tokenToNulsSwapInput(tokens_removed, BigInteger.ONE, LocalMarket.DEADLINE)));
+        } else {
+            paid = market.execute(provider, zap, null, s -> s.zapOutToken(amount, BigInteger.ONE, LocalMarket.DEADLINE));
+            expected = tokens_removed.add(market.execute(twin_provider, twin, nuls_removed, s -> s.nulsToTokenSwapInput(BigInteger.ONE, LocalMarket.DEADLINE)));
+        }
+        require(paid.equals(expected), "zap out paid " + paid + ", remove and swap pay " + expected);
+        require(zap.contract.getNulsReserve().equals(twin.contract.getNulsReserve()) && zap.contract.getTokenReserve().equals(twin.contract.getTokenReserve()),
+                "zap out left other reserves than remove and swap");
+        require(zap.contract.getTotalSupply().equals(twin.contract.getTotalSupply()), "zap out burned a different amount");
+    }
+}
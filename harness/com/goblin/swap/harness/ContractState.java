@@ -0,0 +1,101 @@
+package com.goblin.swap.harness;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Field-level snapshot of contract objects, used to roll a failed transaction back. Maps, lists and
+ * arrays are copied one level deep; everything stored in them is expected to be immutable
+ * ({@code BigInteger}, {@code Address}, {@code String}, boxed primitives), as it is in contract storage.
+ */
+final class ContractState {
+
+    private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<Class<?>, Field[]>();
+
+    private ContractState() {
+    }
+
+    /**
+     * Adds {@code contract}'s fields to {@code state} unless it is already there.
+     */
+    static void capture(Map<Object, Object[]> state, Object contract) {
+        if (state.containsKey(contract)) {
+            return;
+        }
+        Field[] fields = fields(contract.getClass());
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = copy(get(fields[i], contract));
+        }
+        state.put(contract, values);
+    }
+
+    static void restore(Map<Object, Object[]> state) {
+        for (Map.Entry<Object, Object[]> entry : state.entrySet()) {
+            Object contract = entry.getKey();
+            Field[] fields = fields(contract.getClass());
+            Object[] values = entry.getValue();
+            for (int i = 0; i < fields.length; i++) {
+                try {
+                    fields[i].set(contract, values[i]);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private static Object get(Field field, Object contract) {
+        try {
+            return field.get(contract);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object copy(Object value) {
+        if (value instanceof LinkedHashMap) {
+            return new LinkedHashMap((Map) value);
+        }
+        if (value instanceof Map) {
+            return new HashMap((Map) value);
+        }
+        if (value instanceof List) {
+            return new ArrayList((List) value);
+        }
+        if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            System.arraycopy(value, 0, copy, 0, length);
+            return copy;
+        }
+        return value;
+    }
+
+    private static Field[] fields(Class<?> type) {
+        Field[] fields = FIELDS.get(type);
+        if (fields == null) {
+            List<Field> list = new ArrayList<Field>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        list.add(field);
+                    }
+                }
+            }
+            fields = list.toArray(new Field[0]);
+            FIELDS.put(type, fields);
+        }
+        return fields;
+    }
+}
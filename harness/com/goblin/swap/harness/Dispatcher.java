@@ -0,0 +1,108 @@
+package com.goblin.swap.harness;
+
+import io.nuls.contract.sdk.Address;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes a cross-contract call to a public method of a contract object the way the NULS VM does: by
+ * method name and argument count, converting each {@code String[]} argument to the declared parameter
+ * type and the result back to a string.
+ */
+final class Dispatcher {
+
+    private static final Map<String, Method> METHODS = new ConcurrentHashMap<String, Method>();
+
+    private Dispatcher() {
+    }
+
+    static String invoke(Object contract, String name, String[][] args) {
+        int arity = args == null ? 0 : args.length;
+        Method method = method(contract.getClass(), name, arity);
+        Class<?>[] types = method.getParameterTypes();
+        Object[] params = new Object[arity];
+        for (int i = 0; i < arity; i++) {
+            params[i] = convert(types[i], args[i]);
+        }
+        try {
+            Object result = method.invoke(contract, params);
+            return result == null ? null : result.toString();
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Method method(Class<?> type, String name, int arity) {
+        String key = type.getName() + '#' + name + '/' + arity;
+        Method method = METHODS.get(key);
+        if (method == null) {
+            for (Method candidate : type.getMethods()) {
+                if (candidate.getName().equals(name) && candidate.getParameterTypes().length == arity
+                        && !Modifier.isStatic(candidate.getModifiers())) {
+                    method = candidate;
+                    break;
+                }
+            }
+            if (method == null) {
+                throw new Revert("no method " + name + " with " + arity + " arguments on " + type.getSimpleName());
+            }
+            METHODS.put(key, method);
+        }
+        return method;
+    }
+
+    private static Object convert(Class<?> type, String[] arg) {
+        if (type.isArray()) {
+            Class<?> component = type.getComponentType();
+            if (arg == null) {
+                return null;
+            }
+            Object array = Array.newInstance(component, arg.length);
+            for (int i = 0; i < arg.length; i++) {
+                Array.set(array, i, scalar(component, arg[i]));
+            }
+            return array;
+        }
+        return scalar(type, arg == null || arg.length == 0 ? null : arg[0]);
+    }
+
+    private static Object scalar(Class<?> type, String value) {
+        if (type == String.class) {
+            return value;
+        }
+        if (value == null) {
+            if (type.isPrimitive()) {
+                throw new Revert("missing argument of type " + type);
+            }
+            return null;
+        }
+        if (type == BigInteger.class) {
+            return new BigInteger(value);
+        }
+        if (type == Address.class) {
+            return new Address(value);
+        }
+        if (type == int.class || type == Integer.class) {
+            return Integer.valueOf(value);
+        }
+        if (type == long.class || type == Long.class) {
+            return Long.valueOf(value);
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return Boolean.valueOf(value);
+        }
+        throw new Revert("unsupported argument type " + type);
+    }
+}
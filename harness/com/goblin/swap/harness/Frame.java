@@ -0,0 +1,17 @@
+package com.goblin.swap.harness;
+
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigInteger;
+
+public final class Frame {
+    public final Address address;
+    public final Address sender;
+    public final BigInteger value;
+
+    Frame(Address address, Address sender, BigInteger value) {
+        this.address = address;
+        this.sender = sender;
+        this.value = value;
+    }
+}
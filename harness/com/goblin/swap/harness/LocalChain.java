@@ -0,0 +1,306 @@
+package com.goblin.swap.harness;
+
+import io.nuls.contract.sdk.Address;
+import io.nuls.contract.sdk.Event;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory stand-in for the NULS contract VM. Holds NULS balances, deployed contracts, the call stack
+ * behind {@code Msg}, and the block clock behind {@code Block}. Each thread drives its own chain, see
+ * {@link #install(LocalChain)}.
+ */
+public final class LocalChain {
+
+    public static final long BLOCK_INTERVAL = 10;
+    // fixedAddress ids start here, far beyond any count newAddress reaches
+    private static final long FIXED_ADDRESS_BASE = 1_000_000_000_000_000L;
+
+    private static final ThreadLocal<LocalChain> CURRENT = new ThreadLocal<LocalChain>();
+
+    private final boolean atomic;
+    private final Map<Address, BigInteger> balances = new HashMap<Address, BigInteger>();
+    private final Map<Address, Object> contracts = new HashMap<Address, Object>();
+    private final ArrayDeque<Frame> frames = new ArrayDeque<Frame>();
+    private final Map<Address, BigInteger> journal = new HashMap<Address, BigInteger>();
+    private final List<Event> pendingEvents = new ArrayList<Event>();
+    private final Map<Object, Object[]> state = new IdentityHashMap<Object, Object[]>();
+    private Consumer<Event> eventListener;
+    private long addressSeq;
+    private long blockNumber = 1;
+    private long timestamp = 1_600_000_000L;
+
+    private long transactions;
+    private long reverts;
+    private long crossContractCalls;
+    private long events;
+
+    public LocalChain() {
+        this(true);
+    }
+
+    /**
+     * @param atomic when true a failed transaction rolls back balances and contract fields, as on chain;
+     *               benchmarks that only drive successful calls can turn it off to keep the snapshot cost
+     *               out of their numbers
+     */
+    public LocalChain(boolean atomic) {
+        this.atomic = atomic;
+    }
+
+    public static LocalChain current() {
+        LocalChain chain = CURRENT.get();
+        if (chain == null) {
+            throw new IllegalStateException("no LocalChain installed on " + Thread.currentThread().getName());
+        }
+        return chain;
+    }
+
+    public static LocalChain install(LocalChain chain) {
+        LocalChain previous = CURRENT.get();
+        if (chain == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(chain);
+        }
+        return previous;
+    }
+
+    public Address newAddress() {
+        return new Address(String.format("NULSd6Hg%029d", ++addressSeq));
+    }
+
+    /**
+     * An address {@link #newAddress()} never returns, the same on every chain for the same {@code id}.
+     */
+    public static Address fixedAddress(long id) {
+        return new Address(String.format("NULSd6Hg%029d", FIXED_ADDRESS_BASE + id));
+    }
+
+    public Address deploy(Object contract) {
+        Address address = newAddress();
+        contracts.put(address, contract);
+        return address;
+    }
+
+    public void deploy(Address address, Object contract) {
+        contracts.put(address, contract);
+    }
+
+    /**
+     * Deploys a contract whose constructor reads {@code Msg}: the constructor runs with {@code creator} as
+     * {@code Msg.sender()} and the new address as {@code Msg.address()}.
+     */
+    public <C> Address create(Address creator, Supplier<C> constructor) {
+        return create(creator, newAddress(), constructor);
+    }
+
+    public <C> Address create(Address creator, Address address, Supplier<C> constructor) {
+        frames.push(new Frame(address, creator, BigInteger.ZERO));
+        try {
+            contracts.put(address, constructor.get());
+        } finally {
+            frames.pop();
+        }
+        return address;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <C> C contract(Address address) {
+        return (C) contracts.get(address);
+    }
+
+    public boolean isContract(Address address) {
+        return contracts.containsKey(address);
+    }
+
+    public void onEvent(Consumer<Event> listener) {
+        this.eventListener = listener;
+    }
+
+    public long blockNumber() {
+        return blockNumber;
+    }
+
+    public long timestamp() {
+        return timestamp;
+    }
+
+    public void nextBlock() {
+        blockNumber++;
+        timestamp += BLOCK_INTERVAL;
+    }
+
+    public void advanceTo(long blockNumber, long timestamp) {
+        this.blockNumber = blockNumber;
+        this.timestamp = timestamp;
+    }
+
+    public BigInteger balanceOf(Address address) {
+        BigInteger balance = balances.get(address);
+        return balance == null ? BigInteger.ZERO : balance;
+    }
+
+    public void mint(Address address, BigInteger value) {
+        setBalance(address, balanceOf(address).add(value));
+    }
+
+    public void transfer(Address from, Address to, BigInteger value) {
+        if (value == null || value.signum() == 0) {
+            return;
+        }
+        if (value.signum() < 0) {
+            throw new Revert("negative transfer");
+        }
+        BigInteger fromBalance = balanceOf(from);
+        if (fromBalance.compareTo(value) < 0) {
+            throw new Revert("insufficient balance");
+        }
+        setBalance(from, fromBalance.subtract(value));
+        setBalance(to, balanceOf(to).add(value));
+    }
+
+    private void setBalance(Address address, BigInteger value) {
+        if (!frames.isEmpty() && atomic && !journal.containsKey(address)) {
+            journal.put(address, balances.get(address));
+        }
+        balances.put(address, value);
+    }
+
+    public Frame frame() {
+        Frame frame = frames.peek();
+        if (frame == null) {
+            throw new IllegalStateException("no transaction in progress");
+        }
+        return frame;
+    }
+
+    /**
+     * Runs {@code body} as a top-level transaction from {@code sender} against the contract deployed at
+     * {@code contract}, attaching {@code value} NULS. A {@link Revert} or any other exception rolls the
+     * transaction back (when atomic) and is rethrown.
+     */
+    public <C, R> R execute(Address sender, Address contract, BigInteger value, Function<C, R> body) {
+        if (!frames.isEmpty()) {
+            throw new IllegalStateException("nested top-level transaction");
+        }
+        C target = contract(contract);
+        if (target == null) {
+            throw new IllegalArgumentException("no contract at " + contract);
+        }
+        touch(target);
+        transactions++;
+        BigInteger attached = value == null ? BigInteger.ZERO : value;
+        frames.push(new Frame(contract, sender, attached));
+        try {
+            transfer(sender, contract, attached);
+            R result = body.apply(target);
+            commit();
+            return result;
+        } catch (RuntimeException e) {
+            reverts++;
+            rollback();
+            throw e;
+        } finally {
+            frames.pop();
+        }
+    }
+
+    public String invoke(Address caller, Address target, String method, String[][] args, BigInteger value) {
+        Object contract = contracts.get(target);
+        if (contract == null) {
+            throw new Revert("no contract at " + target);
+        }
+        crossContractCalls++;
+        touch(contract);
+        BigInteger attached = value == null ? BigInteger.ZERO : value;
+        frames.push(new Frame(target, caller, attached));
+        try {
+            transfer(caller, target, attached);
+            if (contract instanceof LocalContract) {
+                return ((LocalContract) contract).invoke(caller, method, args, attached);
+            }
+            return Dispatcher.invoke(contract, method, args);
+        } finally {
+            frames.pop();
+        }
+    }
+
+    /**
+     * Contract fields only change while the contract's own code runs, so a transaction snapshots each
+     * contract the first time it is entered rather than every contract up front.
+     */
+    private void touch(Object contract) {
+        if (atomic) {
+            ContractState.capture(state, contract);
+        }
+    }
+
+    public void emit(Event event) {
+        if (frames.isEmpty()) {
+            throw new IllegalStateException("emit outside of a transaction");
+        }
+        pendingEvents.add(event);
+    }
+
+    private void commit() {
+        events += pendingEvents.size();
+        if (eventListener != null) {
+            for (Event event : pendingEvents) {
+                eventListener.accept(event);
+            }
+        }
+        pendingEvents.clear();
+        journal.clear();
+        state.clear();
+    }
+
+    private void rollback() {
+        pendingEvents.clear();
+        if (!atomic) {
+            return;
+        }
+        for (Map.Entry<Address, BigInteger> entry : journal.entrySet()) {
+            if (entry.getValue() == null) {
+                balances.remove(entry.getKey());
+            } else {
+                balances.put(entry.getKey(), entry.getValue());
+            }
+        }
+        journal.clear();
+        ContractState.restore(state);
+        state.clear();
+    }
+
+    public long transactions() {
+        return transactions;
+    }
+
+    public long reverts() {
+        return reverts;
+    }
+
+    public long crossContractCalls() {
+        return crossContractCalls;
+    }
+
+    public long events() {
+        return events;
+    }
+
+    public void resetCounters() {
+        transactions = 0;
+        reverts = 0;
+        crossContractCalls = 0;
+        events = 0;
+    }
+}
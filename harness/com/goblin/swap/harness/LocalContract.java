@@ -0,0 +1,10 @@
+package com.goblin.swap.harness;
+
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigInteger;
+
+public interface LocalContract {
+
+    String invoke(Address caller, String method, String[][] args, BigInteger value);
+}
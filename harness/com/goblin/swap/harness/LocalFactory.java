@@ -0,0 +1,38 @@
+package com.goblin.swap.harness;
+
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Factory answering {@code getExchange} and {@code getToken} from the exchanges registered with it.
+ */
+public class LocalFactory implements LocalContract {
+
+    private final Map<Address, Address> exchanges = new HashMap<Address, Address>();
+    private final Map<Address, Address> tokens = new HashMap<Address, Address>();
+
+    public void register(Address token, Address exchange) {
+        exchanges.put(token, exchange);
+        tokens.put(exchange, token);
+    }
+
+    public Address exchange(Address token) {
+        return exchanges.get(token);
+    }
+
+    @Override
+    public String invoke(Address caller, String method, String[][] args, BigInteger value) {
+        if ("getExchange".equals(method)) {
+            Address exchange = exchanges.get(LocalToken.address(args, 0));
+            return exchange == null ? null : exchange.toString();
+        }
+        if ("getToken".equals(method)) {
+            Address token = tokens.get(LocalToken.address(args, 0));
+            return token == null ? null : token.toString();
+        }
+        throw new Revert("LocalFactory has no method " + method);
+    }
+}
@@ -0,0 +1,54 @@
+package com.goblin.swap.harness;
+
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LP token mirror the exchange reports net mints and burns to from {@code syncLpToken}. Locks are
+ * authoritative in the exchange ({@code setLockedLp}); {@link #lock(Address, BigInteger)} only keeps
+ * this mirror's {@code getCanUsedLpAmount} in step.
+ */
+public class LocalLpToken implements LocalContract {
+
+    private final Map<Address, BigInteger> balances = new HashMap<Address, BigInteger>();
+    private final Map<Address, BigInteger> locked = new HashMap<Address, BigInteger>();
+
+    public BigInteger balanceOf(Address owner) {
+        BigInteger balance = balances.get(owner);
+        return balance == null ? BigInteger.ZERO : balance;
+    }
+
+    public void lock(Address owner, BigInteger amount) {
+        locked.put(owner, amount);
+    }
+
+    public BigInteger canUse(Address owner) {
+        BigInteger lockedAmount = locked.get(owner);
+        return lockedAmount == null ? balanceOf(owner) : balanceOf(owner).subtract(lockedAmount);
+    }
+
+    @Override
+    public String invoke(Address caller, String method, String[][] args, BigInteger value) {
+        if ("addLiquidity".equals(method)) {
+            Address owner = LocalToken.address(args, 0);
+            balances.put(owner, balanceOf(owner).add(LocalToken.amount(args, 1)));
+            return null;
+        }
+        if ("removeLiquidity".equals(method)) {
+            Address owner = LocalToken.address(args, 0);
+            BigInteger remaining = balanceOf(owner).subtract(LocalToken.amount(args, 1));
+            balances.put(owner, remaining.signum() > 0 ? remaining : BigInteger.ZERO);
+            return null;
+        }
+        if ("getCanUsedLpAmount".equals(method)) {
+            return canUse(LocalToken.address(args, 0)).toString();
+        }
+        if ("balanceOf".equals(method)) {
+            return balanceOf(LocalToken.address(args, 0)).toString();
+        }
+        throw new Revert("LocalLpToken has no method " + method);
+    }
+}
@@ -0,0 +1,110 @@
+package com.goblin.swap.harness;
+
+import com.goblin.swap.contract.GoblinSwap;
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A factory plus any number of token/NULS exchanges deployed on one {@link LocalChain}, with helpers to
+ * fund traders and run transactions against an exchange.
+ */
+public class LocalMarket {
+    public static final BigInteger DEADLINE = BigInteger.valueOf(Long.MAX_VALUE);
+
+    public final LocalChain chain;
+    public final LocalFactory factory = new LocalFactory();
+    public final Address factoryAddress;
+    public final Address deployer;
+    private final List<Pool> pools = new ArrayList<Pool>();
+
+    public LocalMarket(LocalChain chain) {
+        this.chain = chain;
+        this.factoryAddress = chain.deploy(factory);
+        this.deployer = chain.newAddress();
+    }
+
+    public Pool createExchange(String symbol) {
+        Pool pool = new Pool(symbol, chain.newAddress(), chain.newAddress(), chain.newAddress());
+        pools.add(pool);
+        return pool;
+    }
+
+    /**
+     * {@link #createExchange(String)} at addresses fixed by {@code index} instead of deployment order, so
+     * markets that list different subsets of pools agree on the address of every contract they share.
+     */
+    public Pool createExchange(String symbol, int index) {
+        Pool pool = new Pool(symbol, LocalChain.fixedAddress(3L * index), LocalChain.fixedAddress(3L * index + 1),
+                LocalChain.fixedAddress(3L * index + 2));
+        pools.add(pool);
+        return pool;
+    }
+
+    public List<Pool> pools() {
+        return Collections.unmodifiableList(pools);
+    }
+
+    /**
+     * A new account holding {@code nuls} NULS and {@code tokens} of every token listed so far, with each
+     * exchange approved to pull its token.
+     */
+    public Address newTrader(BigInteger nuls, BigInteger tokens) {
+        Address trader = chain.newAddress();
+        chain.mint(trader, nuls);
+        for (Pool pool : pools) {
+            pool.token.mint(trader, tokens);
+            pool.token.approve(trader, pool.exchange, tokens);
+        }
+        return trader;
+    }
+
+    public <R> R execute(Address sender, Pool pool, BigInteger value, Function<GoblinSwap, R> body) {
+        return chain.execute(sender, pool.exchange, value, body);
+    }
+
+    public final class Pool {
+        public final String symbol;
+        public final LocalToken token = new LocalToken();
+        public final Address tokenAddress;
+        public final LocalLpToken lpToken = new LocalLpToken();
+        public final Address lpTokenAddress;
+        public final GoblinSwap contract;
+        public final Address exchange;
+
+        private Pool(String symbol, Address tokenAddress, Address lpTokenAddress, Address exchange) {
+            this.symbol = symbol;
+            this.tokenAddress = tokenAddress;
+            this.lpTokenAddress = lpTokenAddress;
+            chain.deploy(tokenAddress, token);
+            chain.deploy(lpTokenAddress, lpToken);
+            this.exchange = chain.create(deployer, exchange, () -> new GoblinSwap(symbol + "-LP", symbol + "-LP", 8, tokenAddress, factoryAddress, lpTokenAddress));
+            this.contract = chain.contract(exchange);
+            factory.register(tokenAddress, exchange);
+        }
+
+        /**
+         * Seeds the exchange from a fresh provider and returns that provider.
+         */
+        public Address seed(BigInteger nuls, BigInteger tokens) {
+            Address provider = chain.newAddress();
+            chain.mint(provider, nuls);
+            token.mint(provider, tokens);
+            token.approve(provider, exchange, tokens);
+            chain.<GoblinSwap, BigInteger>execute(provider, exchange, nuls, swap -> swap.addLiquidity(BigInteger.ONE, tokens, DEADLINE));
+            return provider;
+        }
+
+        public BigInteger nulsReserve() {
+            return chain.balanceOf(exchange);
+        }
+
+        public BigInteger tokenReserve() {
+            return token.balanceOf(exchange);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.goblin.swap.harness;
+
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * NRC20 token answering {@code balanceOf}, {@code transfer}, {@code transferFrom}, {@code approve},
+ * {@code allowance} and {@code totalSupply}.
+ */
+public class LocalToken implements LocalContract {
+
+    private final Map<Address, BigInteger> balances = new HashMap<Address, BigInteger>();
+    private final Map<String, BigInteger> allowances = new HashMap<String, BigInteger>();
+    private BigInteger totalSupply = BigInteger.ZERO;
+
+    public void mint(Address to, BigInteger value) {
+        balances.put(to, balanceOf(to).add(value));
+        totalSupply = totalSupply.add(value);
+    }
+
+    public BigInteger balanceOf(Address owner) {
+        BigInteger balance = balances.get(owner);
+        return balance == null ? BigInteger.ZERO : balance;
+    }
+
+    public void approve(Address owner, Address spender, BigInteger value) {
+        allowances.put(owner + "|" + spender, value);
+    }
+
+    public BigInteger allowance(Address owner, Address spender) {
+        BigInteger allowance = allowances.get(owner + "|" + spender);
+        return allowance == null ? BigInteger.ZERO : allowance;
+    }
+
+    @Override
+    public String invoke(Address caller, String method, String[][] args, BigInteger value) {
+        if ("balanceOf".equals(method)) {
+            return balanceOf(address(args, 0)).toString();
+        }
+        if ("transfer".equals(method)) {
+            move(caller, address(args, 0), amount(args, 1));
+            return "true";
+        }
+        if ("transferFrom".equals(method)) {
+            Address from = address(args, 0);
+            BigInteger amount = amount(args, 2);
+            if (!from.equals(caller)) {
+                BigInteger allowance = allowance(from, caller);
+                if (allowance.compareTo(amount) < 0) {
+                    throw new Revert("insufficient allowance");
+                }
+                approve(from, caller, allowance.subtract(amount));
+            }
+            move(from, address(args, 1), amount);
+            return "true";
+        }
+        if ("approve".equals(method)) {
+            approve(caller, address(args, 0), amount(args, 1));
+            return "true";
+        }
+        if ("allowance".equals(method)) {
+            return allowance(address(args, 0), address(args, 1)).toString();
+        }
+        if ("totalSupply".equals(method)) {
+            return totalSupply.toString();
+        }
+        throw new Revert("LocalToken has no method " + method);
+    }
+
+    private void move(Address from, Address to, BigInteger amount) {
+        if (amount.signum() < 0) {
+            throw new Revert("negative amount");
+        }
+        BigInteger fromBalance = balanceOf(from);
+        if (fromBalance.compareTo(amount) < 0) {
+            throw new Revert("insufficient token balance");
+        }
+        balances.put(from, fromBalance.subtract(amount));
+        balances.put(to, balanceOf(to).add(amount));
+    }
+
+    static Address address(String[][] args, int index) {
+        return new Address(args[index][0]);
+    }
+
+    static BigInteger amount(String[][] args, int index) {
+        return new BigInteger(args[index][0]);
+    }
+}
@@ -0,0 +1,156 @@
+package com.goblin.swap.harness;
+
+import com.goblin.swap.contract.GoblinSwap;
+import io.nuls.contract.sdk.Event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Replays a transaction stream against real GoblinSwap exchanges on {@link LocalChain}s. Pools linked by
+ * a cross-exchange transaction form one partition; each partition runs on its own chain, in stream order,
+ * so a token-to-token hop always sees the same state of both pools as in a single sequential run. Each
+ * chain deploys only its partition's pools, at addresses fixed by pool index, and {@link ReplayTx} funds
+ * senders per transaction, so {@link #runParallel} and {@link #runSequential} produce equal
+ * {@link ReplayResult}s.
+ */
+public final class ReplayEngine {
+    private final List<String> symbols;
+    private final List<ReplayTx> transactions;
+
+    public ReplayEngine(List<String> symbols, List<ReplayTx> transactions) {
+        this.symbols = symbols;
+        this.transactions = transactions;
+        for (ReplayTx tx : transactions) {
+            if (tx.pool < 0 || tx.pool >= symbols.size() || tx.target >= symbols.size()) {
+                throw new IllegalArgumentException("transaction names an unknown pool");
+            }
+        }
+    }
+
+    public ReplayResult runSequential() {
+        ReplayResult result = new ReplayResult(transactions.size(), symbols.size());
+        List<Integer> pools = new ArrayList<Integer>();
+        List<Integer> txs = new ArrayList<Integer>();
+        for (int i = 0; i < symbols.size(); i++) {
+            pools.add(i);
+        }
+        for (int i = 0; i < transactions.size(); i++) {
+            txs.add(i);
+        }
+        replay(pools, txs, result);
+        return result;
+    }
+
+    public ReplayResult runParallel(ForkJoinPool executor) {
+        final ReplayResult result = new ReplayResult(transactions.size(), symbols.size());
+        List<List<Integer>> pools = new ArrayList<List<Integer>>();
+        List<List<Integer>> txs = new ArrayList<List<Integer>>();
+        partition(pools, txs);
+        final List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+        for (int i = 0; i < pools.size(); i++) {
+            final List<Integer> partitionPools = pools.get(i);
+            final List<Integer> partitionTxs = txs.get(i);
+            tasks.add(ForkJoinTask.adapt(() -> replay(partitionPools, partitionTxs, result)));
+        }
+        executor.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        return result;
+    }
+
+    /**
+     * Connected components of the pool graph whose edges are cross-exchange transactions, each with its
+     * transactions in stream order, largest first so the pool starts on the longest work.
+     */
+    public int partition(List<List<Integer>> pools, List<List<Integer>> txs) {
+        int[] parent = new int[symbols.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (ReplayTx tx : transactions) {
+            if (tx.target >= 0) {
+                parent[find(parent, tx.pool)] = find(parent, tx.target);
+            }
+        }
+        int[] component = new int[parent.length];
+        for (int i = 0; i < parent.length; i++) {
+            int root = find(parent, i);
+            if (root == i) {
+                component[i] = pools.size();
+                pools.add(new ArrayList<Integer>());
+                txs.add(new ArrayList<Integer>());
+            }
+        }
+        for (int i = 0; i < parent.length; i++) {
+            pools.get(component[find(parent, i)]).add(i);
+        }
+        for (int i = 0; i < transactions.size(); i++) {
+            txs.get(component[find(parent, transactions.get(i).pool)]).add(i);
+        }
+        sortBySize(pools, txs);
+        return pools.size();
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void sortBySize(List<List<Integer>> pools, List<List<Integer>> txs) {
+        for (int i = 1; i < txs.size(); i++) {
+            for (int j = i; j > 0 && txs.get(j).size() > txs.get(j - 1).size(); j--) {
+                txs.add(j - 1, txs.remove(j));
+                pools.add(j - 1, pools.remove(j));
+            }
+        }
+    }
+
+    private void replay(List<Integer> pools, List<Integer> txs, ReplayResult result) {
+        LocalChain chain = new LocalChain(true);
+        LocalChain previous = LocalChain.install(chain);
+        try {
+            LocalMarket market = new LocalMarket(chain);
+            List<LocalMarket.Pool> all = new ArrayList<LocalMarket.Pool>(Collections.<LocalMarket.Pool>nCopies(symbols.size(), null));
+            for (int i : pools) {
+                all.set(i, market.createExchange(symbols.get(i), i));
+            }
+            final int[] hash = new int[1];
+            chain.onEvent((Event event) -> hash[0] = hash[0] * 31 + event.toString().hashCode());
+            for (int index : txs) {
+                ReplayTx tx = transactions.get(index);
+                LocalMarket.Pool pool = all.get(tx.pool);
+                if (tx.block != chain.blockNumber() || tx.timestamp != chain.timestamp()) {
+                    chain.advanceTo(tx.block, tx.timestamp);
+                }
+                if (tx.value != null && tx.value.signum() > 0) {
+                    chain.mint(tx.sender, tx.value);
+                }
+                if (tx.tokens != null && tx.tokens.signum() > 0) {
+                    pool.token.mint(tx.sender, tx.tokens);
+                    pool.token.approve(tx.sender, pool.exchange, tx.tokens);
+                }
+                hash[0] = 1;
+                try {
+                    result.outputs[index] = chain.<GoblinSwap, Object>execute(tx.sender, pool.exchange, tx.value, swap -> tx.call.apply(swap, all));
+                } catch (RuntimeException e) {
+                    result.reverts[index] = String.valueOf(e.getMessage());
+                }
+                result.eventHashes[index] = hash[0];
+            }
+            for (int i : pools) {
+                LocalMarket.Pool pool = all.get(i);
+                GoblinSwap swap = pool.contract;
+                result.pools[i] = new ReplayResult.PoolState(swap.getNulsReserve(), swap.getTokenReserve(), swap.getTotalSupply(),
+                        pool.nulsReserve(), pool.tokenReserve(), swap.getStats(), swap.getObservations());
+            }
+            result.addCounters(chain);
+        } finally {
+            LocalChain.install(previous);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.goblin.swap.harness;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Everything a replay produced: per transaction the return value, the revert message and a hash of the
+ * events it emitted in order; per pool the final reserves, balances and counters; and the chain counters
+ * summed over every partition. Two replays of one stream are identical exactly when {@link #equals} holds.
+ */
+public final class ReplayResult {
+    final Object[] outputs;
+    final String[] reverts;
+    final int[] eventHashes;
+    final PoolState[] pools;
+    long transactions;
+    long revertCount;
+    long crossContractCalls;
+    long events;
+
+    ReplayResult(int transactions, int pools) {
+        this.outputs = new Object[transactions];
+        this.reverts = new String[transactions];
+        this.eventHashes = new int[transactions];
+        this.pools = new PoolState[pools];
+    }
+
+    public Object output(int tx) {
+        return outputs[tx];
+    }
+
+    public String revert(int tx) {
+        return reverts[tx];
+    }
+
+    public PoolState pool(int pool) {
+        return pools[pool];
+    }
+
+    public long transactions() {
+        return transactions;
+    }
+
+    public long reverts() {
+        return revertCount;
+    }
+
+    public long crossContractCalls() {
+        return crossContractCalls;
+    }
+
+    public long events() {
+        return events;
+    }
+
+    synchronized void addCounters(LocalChain chain) {
+        transactions += chain.transactions();
+        revertCount += chain.reverts();
+        crossContractCalls += chain.crossContractCalls();
+        events += chain.events();
+    }
+
+    /**
+     * Index of the first transaction whose outcome differs from {@code other}'s, or -1.
+     */
+    public int firstDifference(ReplayResult other) {
+        for (int i = 0; i < outputs.length; i++) {
+            if (!Objects.equals(outputs[i], other.outputs[i]) || !Objects.equals(reverts[i], other.reverts[i]) || eventHashes[i] != other.eventHashes[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ReplayResult that = (ReplayResult) o;
+        return transactions == that.transactions &&
+                revertCount == that.revertCount &&
+                crossContractCalls == that.crossContractCalls &&
+                events == that.events &&
+                Arrays.equals(outputs, that.outputs) &&
+                Arrays.equals(reverts, that.reverts) &&
+                Arrays.equals(eventHashes, that.eventHashes) &&
+                Arrays.equals(pools, that.pools);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(transactions, revertCount, crossContractCalls, events);
+        result = 31 * result + Arrays.hashCode(outputs);
+        result = 31 * result + Arrays.hashCode(eventHashes);
+        result = 31 * result + Arrays.hashCode(pools);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayResult{" +
+                "transactions=" + transactions +
+                ", reverts=" + revertCount +
+                ", crossContractCalls=" + crossContractCalls +
+                ", events=" + events +
+                ", pools=" + Arrays.toString(pools) +
+                '}';
+    }
+
+    public static final class PoolState {
+        public final BigInteger nulsReserve;
+        public final BigInteger tokenReserve;
+        public final BigInteger totalSupply;
+        public final BigInteger nulsBalance;
+        public final BigInteger tokenBalance;
+        public final Map<String, Object> stats;
+        public final List<Map<String, Object>> observations;
+
+        PoolState(BigInteger nulsReserve, BigInteger tokenReserve, BigInteger totalSupply, BigInteger nulsBalance, BigInteger tokenBalance, Map<String, Object> stats, List<Map<String, Object>> observations) {
+            this.nulsReserve = nulsReserve;
+            this.tokenReserve = tokenReserve;
+            this.totalSupply = totalSupply;
+            this.nulsBalance = nulsBalance;
+            this.tokenBalance = tokenBalance;
+            this.stats = stats;
+            this.observations = observations;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PoolState that = (PoolState) o;
+            return nulsReserve.equals(that.nulsReserve) &&
+                    tokenReserve.equals(that.tokenReserve) &&
+                    totalSupply.equals(that.totalSupply) &&
+                    nulsBalance.equals(that.nulsBalance) &&
+                    tokenBalance.equals(that.tokenBalance) &&
+                    stats.equals(that.stats) &&
+                    observations.equals(that.observations);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(nulsReserve, tokenReserve, totalSupply, nulsBalance, tokenBalance, stats, observations);
+        }
+
+        @Override
+        public String toString() {
+            return "PoolState{" +
+                    "nulsReserve=" + nulsReserve +
+                    ", tokenReserve=" + tokenReserve +
+                    ", totalSupply=" + totalSupply +
+                    '}';
+        }
+    }
+}
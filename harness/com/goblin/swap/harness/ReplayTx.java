@@ -0,0 +1,42 @@
+package com.goblin.swap.harness;
+
+import com.goblin.swap.contract.GoblinSwap;
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * One historical transaction for {@link ReplayEngine}: {@code call} runs from {@code sender} against the
+ * exchange of pool {@code pool} at the given block and timestamp. Before it runs, the sender is minted
+ * {@code value} NULS and {@code tokens} of the pool's token, approved to the exchange, so outcomes depend
+ * only on pool state and never on which other transactions the sender made. A {@code tokenToToken*} or
+ * {@code tokenToExchange*} call names the pool it buys from as {@code target}; -1 otherwise. {@code call}
+ * gets the pools by index, with null for those outside the transaction's partition.
+ */
+public final class ReplayTx {
+
+    public interface Call {
+        Object apply(GoblinSwap swap, List<LocalMarket.Pool> pools);
+    }
+
+    public final long block;
+    public final long timestamp;
+    public final Address sender;
+    public final int pool;
+    public final int target;
+    public final BigInteger value;
+    public final BigInteger tokens;
+    public final Call call;
+
+    public ReplayTx(long block, long timestamp, Address sender, int pool, int target, BigInteger value, BigInteger tokens, Call call) {
+        this.block = block;
+        this.timestamp = timestamp;
+        this.sender = sender;
+        this.pool = pool;
+        this.target = target;
+        this.value = value;
+        this.tokens = tokens;
+        this.call = call;
+    }
+}
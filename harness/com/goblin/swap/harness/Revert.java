@@ -0,0 +1,9 @@
+package com.goblin.swap.harness;
+
+public class Revert extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public Revert(String message) {
+        super(message, null, false, false);
+    }
+}
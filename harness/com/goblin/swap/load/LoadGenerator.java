@@ -0,0 +1,324 @@
+package com.goblin.swap.load;
+
+import com.goblin.swap.contract.GoblinSwap;
+import com.goblin.swap.harness.LocalChain;
+import com.goblin.swap.harness.LocalMarket;
+import com.goblin.swap.pricing.SwapMath;
+import io.nuls.contract.sdk.Address;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Drives real GoblinSwap exchanges on a fresh {@link LocalChain} with the workload of a
+ * {@link LoadScenario} and reports a {@link LoadReport}. Traders are funded far beyond any order, so a
+ * swap only reverts on its own slippage limit or on a pool it has drained, and a liquidity change only on
+ * its ratio limits. Runs headless: {@link #main} prints one row per scenario, and a scenario can be picked
+ * by name, e.g. {@code java -cp <classes> com.goblin.swap.load.LoadGenerator hot-block whales}.
+ */
+public final class LoadGenerator {
+    private static final BigInteger BPS = BigInteger.valueOf(10_000);
+    private static final BigInteger FUNDS = BigInteger.TEN.pow(30);
+
+    private final LoadScenario scenario;
+    private final Random random;
+    private LocalChain chain;
+    private List<LocalMarket.Pool> pools;
+    private List<Address> traders;
+    private List<List<Address>> providers;
+    private List<Set<Address>> providerSets;
+    private BigInteger[] nulsQuotes;
+    private BigInteger[] tokenQuotes;
+    private BigInteger[] supplyQuotes;
+    private double[] impacts = new double[1024];
+    private int impactCount;
+    private long swaps;
+    private long liquidityChanges;
+    private long swapReverts;
+    private long liquidityReverts;
+
+    public LoadGenerator(LoadScenario scenario) {
+        if (scenario.pools < 1 || scenario.traders < 1 || scenario.slippageBps < 0) {
+            throw new IllegalArgumentException("scenario needs a pool, a trader and a non-negative slippage");
+        }
+        this.scenario = scenario;
+        this.random = new Random(scenario.seed);
+    }
+
+    public static void main(String[] args) {
+        List<String> names = Arrays.asList(args);
+        System.out.println(LoadReport.header());
+        for (LoadScenario scenario : defaultScenarios()) {
+            if (names.isEmpty() || names.contains(scenario.name())) {
+                System.out.println(new LoadGenerator(scenario).run().row());
+            }
+        }
+    }
+
+    /**
+     * From a quiet pool to hundreds of swaps per block, plus whale tails, exact-output orders, one-sided
+     * flow, LP churn and token-to-token routing.
+     */
+    public static List<LoadScenario> defaultScenarios() {
+        List<LoadScenario> scenarios = new ArrayList<LoadScenario>();
+        scenarios.add(new LoadScenario("quiet").ordersPerBlock(2));
+        scenarios.add(new LoadScenario("busy").ordersPerBlock(50));
+        scenarios.add(new LoadScenario("hot-block").ordersPerBlock(300).blocks(20));
+        scenarios.add(new LoadScenario("tight-slippage").ordersPerBlock(50).slippageBps(10));
+        scenarios.add(new LoadScenario("whales").ordersPerBlock(50).sizes(LoadScenario.Sizes.PARETO, 0.001, 1.2));
+        scenarios.add(new LoadScenario("exact-output").ordersPerBlock(50).exactOutputShare(0.5));
+        scenarios.add(new LoadScenario("one-sided").ordersPerBlock(50).buyShare(0.9));
+        scenarios.add(new LoadScenario("lp-churn").ordersPerBlock(50).lpChurn(10, 0.01));
+        scenarios.add(new LoadScenario("token-to-token").pools(4).ordersPerBlock(50).tokenToTokenShare(0.5));
+        return scenarios;
+    }
+
+    /**
+     * Runs the scenario on a fresh chain; repeated runs replay the same seeded workload.
+     */
+    public LoadReport run() {
+        random.setSeed(scenario.seed);
+        impactCount = 0;
+        swaps = 0;
+        liquidityChanges = 0;
+        swapReverts = 0;
+        liquidityReverts = 0;
+        chain = new LocalChain(true);
+        LocalChain previous = LocalChain.install(chain);
+        try {
+            setup();
+            int count = scenario.pools;
+            nulsQuotes = new BigInteger[count];
+            tokenQuotes = new BigInteger[count];
+            supplyQuotes = new BigInteger[count];
+            double drift_sum = 0;
+            double drift_max = 0;
+            long start = System.nanoTime();
+            for (int block = 0; block < scenario.blocks; block++) {
+                for (int p = 0; p < count; p++) {
+                    GoblinSwap swap = pools.get(p).contract;
+                    nulsQuotes[p] = swap.getNulsReserve();
+                    tokenQuotes[p] = swap.getTokenReserve();
+                    supplyQuotes[p] = swap.getTotalSupply();
+                }
+                int orders = poisson(scenario.ordersPerBlock);
+                int lp_ops = poisson(scenario.lpOpsPerBlock);
+                for (int remaining = orders + lp_ops; remaining > 0; remaining--) {
+                    if (random.nextInt(remaining) < orders) {
+                        orders--;
+                        swap();
+                    } else {
+                        changeLiquidity();
+                    }
+                }
+                for (int p = 0; p < count; p++) {
+                    GoblinSwap swap = pools.get(p).contract;
+                    double drift = Math.abs(ratio(swap.getTokenReserve(), swap.getNulsReserve()) / ratio(tokenQuotes[p], nulsQuotes[p]) - 1) * 10_000;
+                    drift_sum += drift;
+                    drift_max = Math.max(drift_max, drift);
+                }
+                chain.nextBlock();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double[] sorted = Arrays.copyOf(impacts, impactCount);
+            Arrays.sort(sorted);
+            double impact_sum = 0;
+            for (double impact : sorted) {
+                impact_sum += impact;
+            }
+            return new LoadReport(scenario.name, chain.transactions(), swaps, liquidityChanges, swapReverts, liquidityReverts, seconds,
+                    impactCount > 0 ? impact_sum / impactCount : 0, quantile(sorted, 0.5), quantile(sorted, 0.99),
+                    scenario.blocks > 0 ? drift_sum / ((long) scenario.blocks * count) : 0, drift_max,
+                    chain.crossContractCalls(), chain.events());
+        } finally {
+            LocalChain.install(previous);
+        }
+    }
+
+    private void setup() {
+        LocalMarket market = new LocalMarket(chain);
+        for (int p = 0; p < scenario.pools; p++) {
+            market.createExchange("P" + p);
+        }
+        pools = market.pools();
+        traders = new ArrayList<Address>();
+        for (int i = 0; i < scenario.traders; i++) {
+            traders.add(market.newTrader(FUNDS, FUNDS));
+        }
+        providers = new ArrayList<List<Address>>();
+        providerSets = new ArrayList<Set<Address>>();
+        for (int p = 0; p < pools.size(); p++) {
+            Address provider = pools.get(p).seed(BigInteger.valueOf(scenario.nulsLiquidity), BigInteger.valueOf(scenario.tokenLiquidity));
+            providers.add(new ArrayList<Address>());
+            providerSets.add(new HashSet<Address>());
+            addProvider(p, provider);
+        }
+        chain.nextBlock();
+        chain.resetCounters();
+    }
+
+    /**
+     * One order quoted against the block-start reserves with the scenario's slippage tolerance.
+     */
+    private void swap() {
+        int p = random.nextInt(scenario.pools);
+        LocalMarket.Pool pool = pools.get(p);
+        Address trader = traders.get(random.nextInt(traders.size()));
+        boolean buy = random.nextDouble() < scenario.buyShare;
+        boolean exact_output = random.nextDouble() < scenario.exactOutputShare;
+        BigInteger nuls_reserve = nulsQuotes[p];
+        BigInteger token_reserve = tokenQuotes[p];
+        BigInteger amount = orderSize(buy ? nuls_reserve : token_reserve);
+        BigInteger live_nuls = pool.contract.getNulsReserve();
+        BigInteger live_tokens = pool.contract.getTokenReserve();
+        swaps++;
+        try {
+            if (buy && !exact_output) {
+                BigInteger min_tokens = lower(SwapMath.getInputPrice(amount, nuls_reserve, token_reserve));
+                BigInteger tokens_bought = market(trader, pool, amount, swap -> swap.nulsToTokenSwapInput(min_tokens, LocalMarket.DEADLINE));
+                recordImpact(amount, tokens_bought, live_nuls, live_tokens);
+            } else if (buy) {
+                BigInteger tokens_bought = SwapMath.getInputPrice(amount, nuls_reserve, token_reserve).max(BigInteger.ONE);
+                BigInteger max_nuls = upper(SwapMath.getOutputPrice(tokens_bought, nuls_reserve, token_reserve));
+                BigInteger nuls_sold = market(trader, pool, max_nuls, swap -> swap.nulsToTokenSwapOutput(tokens_bought, LocalMarket.DEADLINE));
+                recordImpact(nuls_sold, tokens_bought, live_nuls, live_tokens);
+            } else if (scenario.pools > 1 && random.nextDouble() < scenario.tokenToTokenShare) {
+                int q = (p + 1 + random.nextInt(scenario.pools - 1)) % scenario.pools;
+                LocalMarket.Pool target = pools.get(q);
+                BigInteger nuls_bought = SwapMath.getInputPrice(amount, token_reserve, nuls_reserve);
+                BigInteger min_tokens = lower(SwapMath.getInputPrice(nuls_bought, nulsQuotes[q], tokenQuotes[q]));
+                BigInteger target_nuls = target.contract.getNulsReserve();
+                BigInteger target_tokens = target.contract.getTokenReserve();
+                BigInteger tokens_bought = market(trader, pool, null, swap -> swap.tokenToTokenSwapInput(amount, min_tokens, BigInteger.ONE, LocalMarket.DEADLINE, target.tokenAddress));
+                recordImpact(amount, tokens_bought, live_tokens.multiply(target_nuls), live_nuls.multiply(target_tokens));
+            } else if (!exact_output) {
+                BigInteger min_nuls = lower(SwapMath.getInputPrice(amount, token_reserve, nuls_reserve));
+                BigInteger nuls_bought = market(trader, pool, null, swap -> swap.tokenToNulsSwapInput(amount, min_nuls, LocalMarket.DEADLINE));
+                recordImpact(amount, nuls_bought, live_tokens, live_nuls);
+            } else {
+                BigInteger nuls_bought = SwapMath.getInputPrice(amount, token_reserve, nuls_reserve).max(BigInteger.ONE);
+                BigInteger max_tokens = upper(SwapMath.getOutputPrice(nuls_bought, token_reserve, nuls_reserve));
+                BigInteger tokens_sold = market(trader, pool, null, swap -> swap.tokenToNulsSwapOutput(nuls_bought, max_tokens, LocalMarket.DEADLINE));
+                recordImpact(tokens_sold, nuls_bought, live_tokens, live_nuls);
+            }
+        } catch (RuntimeException e) {
+            swapReverts++;
+        }
+    }
+
+    /**
+     * An add of {@code lpSize} of the block-start reserves by a random trader, or a removal of half of a
+     * random provider's position, each with ratio limits at the scenario's slippage. Providers leave the
+     * draw once their position is empty; a pool with none left gets an add.
+     */
+    private void changeLiquidity() {
+        int p = random.nextInt(scenario.pools);
+        LocalMarket.Pool pool = pools.get(p);
+        BigInteger nuls_reserve = nulsQuotes[p];
+        BigInteger token_reserve = tokenQuotes[p];
+        BigInteger total_supply = supplyQuotes[p];
+        liquidityChanges++;
+        List<Address> list = providers.get(p);
+        try {
+            if (random.nextBoolean() || list.isEmpty()) {
+                Address trader = traders.get(random.nextInt(traders.size()));
+                BigInteger nuls_amount = fraction(nuls_reserve, scenario.lpSize);
+                BigInteger max_tokens = upper(nuls_amount.multiply(token_reserve).divide(nuls_reserve).add(BigInteger.ONE));
+                BigInteger min_liquidity = lower(nuls_amount.multiply(total_supply).divide(nuls_reserve));
+                market(trader, pool, nuls_amount, swap -> swap.addLiquidity(min_liquidity, max_tokens, LocalMarket.DEADLINE));
+                addProvider(p, trader);
+            } else {
+                int index = random.nextInt(list.size());
+                Address provider = list.get(index);
+                BigInteger amount = pool.contract.getLpBalance(provider).shiftRight(1).max(BigInteger.ONE);
+                BigInteger min_nuls = lower(amount.multiply(nuls_reserve).divide(total_supply));
+                BigInteger min_tokens = lower(amount.multiply(token_reserve).divide(total_supply));
+                market(provider, pool, null, swap -> {
+                    swap.removeLiquidity(amount, min_nuls, min_tokens, LocalMarket.DEADLINE);
+                    return null;
+                });
+                if (pool.contract.getLpBalance(provider).signum() == 0) {
+                    list.set(index, list.get(list.size() - 1));
+                    list.remove(list.size() - 1);
+                    providerSets.get(p).remove(provider);
+                }
+            }
+        } catch (RuntimeException e) {
+            liquidityReverts++;
+        }
+    }
+
+    private <R> R market(Address sender, LocalMarket.Pool pool, BigInteger value, Function<GoblinSwap, R> body) {
+        return chain.execute(sender, pool.exchange, value, body);
+    }
+
+    private void addProvider(int p, Address provider) {
+        if (providerSets.get(p).add(provider)) {
+            providers.get(p).add(provider);
+        }
+    }
+
+    private BigInteger orderSize(BigInteger input_reserve) {
+        double size = scenario.sizes.sample(random, scenario.medianSize, scenario.sizeShape);
+        return fraction(input_reserve, Math.min(1, size));
+    }
+
+    private static BigInteger fraction(BigInteger amount, double fraction) {
+        return new BigDecimal(amount).multiply(BigDecimal.valueOf(fraction)).toBigInteger().max(BigInteger.ONE);
+    }
+
+    private BigInteger lower(BigInteger quote) {
+        return quote.multiply(BPS.subtract(BigInteger.valueOf(scenario.slippageBps))).divide(BPS).max(BigInteger.ONE);
+    }
+
+    private BigInteger upper(BigInteger quote) {
+        return quote.multiply(BPS.add(BigInteger.valueOf(scenario.slippageBps))).divide(BPS);
+    }
+
+    /**
+     * Shortfall of {@code amount_out / amount_in} against the mid price {@code output_reserve / input_reserve}.
+     */
+    private void recordImpact(BigInteger amount_in, BigInteger amount_out, BigInteger input_reserve, BigInteger output_reserve) {
+        double impact = (1 - ratio(amount_out, amount_in) / ratio(output_reserve, input_reserve)) * 10_000;
+        if (impactCount == impacts.length) {
+            impacts = Arrays.copyOf(impacts, impactCount * 2);
+        }
+        impacts[impactCount++] = impact;
+    }
+
+    private static double ratio(BigInteger numerator, BigInteger denominator) {
+        return new BigDecimal(numerator).divide(new BigDecimal(denominator), MathContext.DECIMAL64).doubleValue();
+    }
+
+    private static double quantile(double[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (q * sorted.length))];
+    }
+
+    private int poisson(double mean) {
+        if (mean <= 0) {
+            return 0;
+        }
+        if (mean >= 30) {
+            return (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian()));
+        }
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+}
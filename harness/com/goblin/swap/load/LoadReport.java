@@ -0,0 +1,94 @@
+package com.goblin.swap.load;
+
+import java.util.Locale;
+
+/**
+ * Outcome of one {@link LoadScenario}. Price impact is the execution price of a successful swap against
+ * the pool's mid price just before it, fee included, in basis points. Block drift is how far a pool's
+ * mid price moved within one block, in basis points.
+ */
+public final class LoadReport {
+    public final String scenario;
+    public final long transactions;
+    public final long swaps;
+    public final long liquidityChanges;
+    public final long swapReverts;
+    public final long liquidityReverts;
+    public final double seconds;
+    public final double meanImpactBps;
+    public final double p50ImpactBps;
+    public final double p99ImpactBps;
+    public final double meanBlockDriftBps;
+    public final double maxBlockDriftBps;
+    public final long crossContractCalls;
+    public final long events;
+
+    LoadReport(String scenario, long transactions, long swaps, long liquidityChanges, long swapReverts, long liquidityReverts, double seconds,
+               double meanImpactBps, double p50ImpactBps, double p99ImpactBps, double meanBlockDriftBps, double maxBlockDriftBps,
+               long crossContractCalls, long events) {
+        this.scenario = scenario;
+        this.transactions = transactions;
+        this.swaps = swaps;
+        this.liquidityChanges = liquidityChanges;
+        this.swapReverts = swapReverts;
+        this.liquidityReverts = liquidityReverts;
+        this.seconds = seconds;
+        this.meanImpactBps = meanImpactBps;
+        this.p50ImpactBps = p50ImpactBps;
+        this.p99ImpactBps = p99ImpactBps;
+        this.meanBlockDriftBps = meanBlockDriftBps;
+        this.maxBlockDriftBps = maxBlockDriftBps;
+        this.crossContractCalls = crossContractCalls;
+        this.events = events;
+    }
+
+    public double throughput() {
+        return seconds > 0 ? transactions / seconds : 0;
+    }
+
+    public double revertRate() {
+        return transactions > 0 ? (double) (swapReverts + liquidityReverts) / transactions : 0;
+    }
+
+    public double swapRevertRate() {
+        return swaps > 0 ? (double) swapReverts / swaps : 0;
+    }
+
+    public double crossContractCallsPerTx() {
+        return transactions > 0 ? (double) crossContractCalls / transactions : 0;
+    }
+
+    public static String header() {
+        return String.format(Locale.ROOT, "%-16s %8s %10s %8s %8s %9s %9s %9s %9s %9s %8s",
+                "scenario", "txs", "tx/s", "revert%", "swapRv%", "impact50", "impact99", "drift", "driftMax", "calls/tx", "ev/tx");
+    }
+
+    /**
+     * One line under {@link #header()}; impact and drift columns are in basis points.
+     */
+    public String row() {
+        return String.format(Locale.ROOT, "%-16s %8d %10.0f %8.2f %8.2f %9.1f %9.1f %9.1f %9.1f %9.3f %8.2f",
+                scenario, transactions, throughput(), revertRate() * 100, swapRevertRate() * 100, p50ImpactBps, p99ImpactBps,
+                meanBlockDriftBps, maxBlockDriftBps, crossContractCallsPerTx(), transactions > 0 ? (double) events / transactions : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "LoadReport{" +
+                "scenario='" + scenario + '\'' +
+                ", transactions=" + transactions +
+                ", swaps=" + swaps +
+                ", liquidityChanges=" + liquidityChanges +
+                ", swapReverts=" + swapReverts +
+                ", liquidityReverts=" + liquidityReverts +
+                ", seconds=" + seconds +
+                ", meanImpactBps=" + meanImpactBps +
+                ", p50ImpactBps=" + p50ImpactBps +
+                ", p99ImpactBps=" + p99ImpactBps +
+                ", meanBlockDriftBps=" + meanBlockDriftBps +
+                ", maxBlockDriftBps=" + maxBlockDriftBps +
+                ", crossContractCalls=" + crossContractCalls +
+                ", events=" + events +
+                '}';
+    }
+}
@@ -0,0 +1,139 @@
+package com.goblin.swap.load;
+
+import java.util.Random;
+
+/**
+ * One synthetic workload for {@link LoadGenerator}. Each block draws a Poisson number of swaps with mean
+ * {@code ordersPerBlock} and of liquidity changes with mean {@code lpOpsPerBlock}, shuffled together.
+ * Order sizes are fractions of the input reserve drawn from {@code sizes} around {@code medianSize}.
+ * Every trader quotes against the reserves at the start of the block and sets its limit
+ * {@code slippageBps} away from that quote, so later orders in a crowded block revert on their
+ * {@code min_*}/{@code max_*} checks exactly as stale wallet quotes do on chain.
+ */
+public final class LoadScenario {
+
+    public enum Sizes {
+        FIXED, UNIFORM, LOG_NORMAL, PARETO;
+
+        /**
+         * A draw with median {@code median}; {@code shape} is sigma for the log-normal and alpha for the
+         * Pareto tail, and unused otherwise.
+         */
+        double sample(Random random, double median, double shape) {
+            switch (this) {
+                case FIXED:
+                    return median;
+                case UNIFORM:
+                    return random.nextDouble() * 2 * median;
+                case LOG_NORMAL:
+                    return median * Math.exp(shape * random.nextGaussian());
+                default:
+                    double scale = median / Math.pow(2, 1 / shape);
+                    return scale / Math.pow(1 - random.nextDouble(), 1 / shape);
+            }
+        }
+    }
+
+    final String name;
+    int pools = 2;
+    int blocks = 100;
+    int traders = 200;
+    double ordersPerBlock = 20;
+    Sizes sizes = Sizes.LOG_NORMAL;
+    double medianSize = 0.001;
+    double sizeShape = 1;
+    double buyShare = 0.5;
+    double exactOutputShare;
+    double tokenToTokenShare;
+    double lpOpsPerBlock;
+    double lpSize = 0.01;
+    int slippageBps = 50;
+    long nulsLiquidity = 100_000_000_000_000L;
+    long tokenLiquidity = 200_000_000_000_000L;
+    long seed = 42;
+
+    public LoadScenario(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public LoadScenario pools(int pools) {
+        this.pools = pools;
+        return this;
+    }
+
+    public LoadScenario blocks(int blocks) {
+        this.blocks = blocks;
+        return this;
+    }
+
+    public LoadScenario traders(int traders) {
+        this.traders = traders;
+        return this;
+    }
+
+    public LoadScenario ordersPerBlock(double ordersPerBlock) {
+        this.ordersPerBlock = ordersPerBlock;
+        return this;
+    }
+
+    /**
+     * Order size as a fraction of the input reserve of the pool it trades on, capped at the whole reserve.
+     */
+    public LoadScenario sizes(Sizes sizes, double medianSize, double sizeShape) {
+        this.sizes = sizes;
+        this.medianSize = medianSize;
+        this.sizeShape = sizeShape;
+        return this;
+    }
+
+    /**
+     * Share of NULS-to-token orders; the rest sell tokens.
+     */
+    public LoadScenario buyShare(double buyShare) {
+        this.buyShare = buyShare;
+        return this;
+    }
+
+    public LoadScenario exactOutputShare(double exactOutputShare) {
+        this.exactOutputShare = exactOutputShare;
+        return this;
+    }
+
+    /**
+     * Share of token sells routed on to another pool's token with {@code tokenToTokenSwapInput}.
+     */
+    public LoadScenario tokenToTokenShare(double tokenToTokenShare) {
+        this.tokenToTokenShare = tokenToTokenShare;
+        return this;
+    }
+
+    /**
+     * Mean liquidity adds plus removes per block, each moving {@code lpSize} of the reserves in or half
+     * of one provider's position out.
+     */
+    public LoadScenario lpChurn(double lpOpsPerBlock, double lpSize) {
+        this.lpOpsPerBlock = lpOpsPerBlock;
+        this.lpSize = lpSize;
+        return this;
+    }
+
+    public LoadScenario slippageBps(int slippageBps) {
+        this.slippageBps = slippageBps;
+        return this;
+    }
+
+    public LoadScenario liquidity(long nulsLiquidity, long tokenLiquidity) {
+        this.nulsLiquidity = nulsLiquidity;
+        this.tokenLiquidity = tokenLiquidity;
+        return this;
+    }
+
+    public LoadScenario seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+}
@@ -0,0 +1,58 @@
+package io.nuls.contract.sdk;
+
+import com.goblin.swap.harness.LocalChain;
+
+import java.math.BigInteger;
+
+public class Address {
+
+    private final String address;
+
+    public Address(String address) {
+        if (address == null || address.isEmpty()) {
+            throw new IllegalArgumentException("invalid address: " + address);
+        }
+        this.address = address;
+    }
+
+    public BigInteger balance() {
+        return LocalChain.current().balanceOf(this);
+    }
+
+    public BigInteger totalBalance() {
+        return balance();
+    }
+
+    public void transfer(BigInteger value) {
+        LocalChain.current().transfer(Msg.address(), this, value);
+    }
+
+    public void call(String methodName, String methodDesc, String[][] args, BigInteger value) {
+        LocalChain.current().invoke(Msg.address(), this, methodName, args, value);
+    }
+
+    public String callWithReturnValue(String methodName, String methodDesc, String[][] args, BigInteger value) {
+        return LocalChain.current().invoke(Msg.address(), this, methodName, args, value);
+    }
+
+    public boolean isContract() {
+        return LocalChain.current().isContract(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return address.equals(((Address) o).address);
+    }
+
+    @Override
+    public int hashCode() {
+        return address.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return address;
+    }
+}
@@ -0,0 +1,17 @@
+package io.nuls.contract.sdk;
+
+import com.goblin.swap.harness.LocalChain;
+
+public class Block {
+
+    private Block() {
+    }
+
+    public static long number() {
+        return LocalChain.current().blockNumber();
+    }
+
+    public static long timestamp() {
+        return LocalChain.current().timestamp();
+    }
+}
@@ -0,0 +1,27 @@
+package io.nuls.contract.sdk;
+
+import com.goblin.swap.harness.LocalChain;
+
+import java.math.BigInteger;
+
+public class Msg {
+
+    private Msg() {
+    }
+
+    public static Address address() {
+        return LocalChain.current().frame().address;
+    }
+
+    public static Address sender() {
+        return LocalChain.current().frame().sender;
+    }
+
+    public static BigInteger value() {
+        return LocalChain.current().frame().value;
+    }
+
+    public static long gasleft() {
+        return Long.MAX_VALUE;
+    }
+}
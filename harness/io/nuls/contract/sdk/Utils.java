@@ -0,0 +1,34 @@
+package io.nuls.contract.sdk;
+
+import com.goblin.swap.harness.LocalChain;
+import com.goblin.swap.harness.Revert;
+
+public class Utils {
+
+    private Utils() {
+    }
+
+    public static void revert() {
+        throw new Revert(null);
+    }
+
+    public static void revert(String errorMessage) {
+        throw new Revert(errorMessage);
+    }
+
+    public static void require(boolean expression) {
+        if (!expression) {
+            throw new Revert(null);
+        }
+    }
+
+    public static void require(boolean expression, String errorMessage) {
+        if (!expression) {
+            throw new Revert(errorMessage);
+        }
+    }
+
+    public static void emit(Event event) {
+        LocalChain.current().emit(event);
+    }
+}